@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+# Measures time from JVM launch to the first successful POST /authenticate for each startup mode:
+#   default  - plain startup, default profile
+#   prod     - 'prod' profile (lazy initialization, no SQL logging or devtools)
+#   aot      - prod + Spring AOT (-Dspring.aot.enabled=true)
+#   aot-cds  - prod + AOT + the AppCDS archive from the training run
+#
+# Usage: scripts/startup-benchmark.sh [extracted-jar] [runs-per-mode]
+# Build first with: mvn -Pfast-startup package -DskipTests
+# Results (median and every run, in ms) are printed and written to target/benchmarks/startup.json.
+set -euo pipefail
+
+JAR=${1:-target/fast-startup/MiniSpringUserManagement-0.0.1-SNAPSHOT.jar}
+RUNS=${2:-5}
+PORT=${STARTUP_BENCHMARK_PORT:-18080}
+CDS_ARCHIVE="$(dirname "$JAR")/application.jsa"
+OUTPUT=target/benchmarks/startup.json
+
+if [[ ! -f "$JAR" ]]; then
+    echo "$JAR not found; build it with: mvn -Pfast-startup package -DskipTests" >&2
+    exit 1
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Starts the application with the given JVM/application arguments and prints the milliseconds until
+# /authenticate first accepts the seeded admin credentials
+measure() {
+    local start pid elapsed=""
+    start=$(now_ms)
+    java "$@" --server.port="$PORT" --management.server.port=$((PORT + 1)) > /dev/null 2>&1 &
+    pid=$!
+    for _ in $(seq 1 6000); do
+        if curl -sf -o /dev/null -X POST "http://localhost:$PORT/authenticate" \
+                -H 'Content-Type: application/json' -d '{"username":"admin","password":"adminPass"}'; then
+            elapsed=$(( $(now_ms) - start ))
+            break
+        fi
+        if ! kill -0 "$pid" 2> /dev/null; then
+            break
+        fi
+        sleep 0.02
+    done
+    kill "$pid" 2> /dev/null || true
+    wait "$pid" 2> /dev/null || true
+    if [[ -z "$elapsed" ]]; then
+        echo "Application did not authenticate: java $*" >&2
+        exit 1
+    fi
+    echo "$elapsed"
+}
+
+declare -A MODES=(
+    [default]="-jar $JAR"
+    [prod]="-jar $JAR --spring.profiles.active=prod"
+    [aot]="-Dspring.aot.enabled=true -jar $JAR --spring.profiles.active=prod"
+    [aot-cds]="-XX:SharedArchiveFile=$CDS_ARCHIVE -Dspring.aot.enabled=true -jar $JAR --spring.profiles.active=prod"
+)
+ORDER=(default prod aot aot-cds)
+
+mkdir -p "$(dirname "$OUTPUT")"
+json="{\"runs\": $RUNS, \"modes\": {"
+for mode in "${ORDER[@]}"; do
+    if [[ $mode == aot-cds && ! -f "$CDS_ARCHIVE" ]]; then
+        echo "Skipping aot-cds: $CDS_ARCHIVE not found"
+        continue
+    fi
+    # One unmeasured run so every mode starts with a warm page cache
+    measure ${MODES[$mode]} > /dev/null
+    times=()
+    for _ in $(seq 1 "$RUNS"); do
+        times+=("$(measure ${MODES[$mode]})")
+    done
+    median=$(printf '%s\n' "${times[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p")
+    printf '%-8s median %6d ms   runs: %s\n' "$mode" "$median" "${times[*]}"
+    json+="\"$mode\": {\"medianMs\": $median, \"runsMs\": [$(IFS=,; echo "${times[*]}")]},"
+done
+json="${json%,}}}"
+echo "$json" > "$OUTPUT"
+echo "Written to $OUTPUT"
@@ -0,0 +1,53 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.example.minispringusermanagement.filters.JwtRequestFilter;
+import org.example.minispringusermanagement.util.JwtUtil;
+import org.example.minispringusermanagement.util.TokenDenylist;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Full per-request cost of JwtRequestFilter for an authenticated request; the principal comes from the token claims
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+    private final FilterChain chain = (request, response) -> { };
+
+    private JwtRequestFilter filter;
+    private String authorizationHeader;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = new JwtUtil(10_000, Duration.ofMinutes(15));
+        UserDetails admin = new UserPrincipal(1L, "admin", "unused", Role.ADMIN);
+        filter = new JwtRequestFilter(jwtUtil, username -> admin,
+                new TokenDenylist(Duration.ofMinutes(1), Duration.ofMinutes(15)), new SimpleMeterRegistry());
+        authorizationHeader = "Bearer " + jwtUtil.generateToken(admin);
+    }
+
+    @Benchmark
+    public void authenticatedRequest(Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader("Authorization", authorizationHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+            blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
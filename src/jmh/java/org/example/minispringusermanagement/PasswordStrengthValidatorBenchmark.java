@@ -0,0 +1,25 @@
+package org.example.minispringusermanagement;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Registration-time password strength check, for a password that passes and one that fails late
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordStrengthValidatorBenchmark {
+
+    private final PasswordStrengthValidator validator = new PasswordStrengthValidator();
+
+    @Param({"Tr0ub4dor&3xyz", "correcthorsebattery1"})
+    private String password;
+
+    @Benchmark
+    public boolean isValid() {
+        return validator.isValid(password, null);
+    }
+}
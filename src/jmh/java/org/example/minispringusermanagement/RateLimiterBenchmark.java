@@ -0,0 +1,42 @@
+package org.example.minispringusermanagement;
+
+import org.example.minispringusermanagement.util.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one login throttle check, for a single hot key and for a spread of 10,000 keys
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private RateLimiter<String> limiter;
+    private String[] keys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter<>(1_000_000, 1_000, 100_000);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public long hotKey() {
+        return limiter.tryAcquire(keys[0]);
+    }
+
+    @Benchmark
+    public long manyKeys() {
+        next = (next + 1) % KEYS;
+        return limiter.tryAcquire(keys[next]);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Latency of a user search against an index of generated users: a selective substring, a two-character
+// prefix, and a substring shared by many users (ranking and paging dominate)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserSearchIndexBenchmark {
+
+    @Param({"1000000"})
+    private int users;
+
+    private UserSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        // Only used by the startup warm-up, which the benchmark doesn't run
+        index = new UserSearchIndex(null, null, new SimpleMeterRegistry());
+        for (int i = 0; i < users; i++) {
+            String name = Integer.toString(i * 7919 % users, 36);
+            index.put(new UserSummary((long) i + 1, "user_" + name, name + "@example" + (i % 50) + ".com", Role.USER));
+        }
+    }
+
+    @Benchmark
+    public UserSearchPage selectiveSubstring() {
+        return index.search("r_12ab", 0, 20);
+    }
+
+    @Benchmark
+    public UserSearchPage prefix() {
+        return index.search("us", 0, 20);
+    }
+
+    @Benchmark
+    public UserSearchPage commonSubstring() {
+        return index.search("ample4", 0, 20);
+    }
+}
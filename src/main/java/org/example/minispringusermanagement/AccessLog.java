@@ -0,0 +1,204 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.minispringusermanagement.filters.AccessLogFilter.AuthOutcome;
+import org.example.minispringusermanagement.util.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+// Structured access log written off the request thread. Request threads copy a few references into a
+// preallocated ring buffer slot; a background writer drains the ring in batches, redacts and formats the
+// events and writes each batch with one call to the "access" logger.
+//
+// Successful requests are sampled; failed requests and failed authentications are always enqueued. If the
+// writer falls a full ring behind, new events are dropped and counted rather than blocking requests.
+@Component
+public class AccessLog {
+
+    private static final Logger log = LoggerFactory.getLogger("access");
+
+    // Bearer tokens pasted into URLs, and the value of any query parameter whose name mentions a token
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9_-]*\\.[A-Za-z0-9_-]*\\.[A-Za-z0-9_-]*");
+    private static final Pattern TOKEN_PARAMETER = Pattern.compile("(?i)([^&=]*token[^&=]*=)[^&]*");
+    private static final String REDACTED = "[redacted]";
+
+    private final boolean enabled;
+    private final double successSampleRate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final RingBuffer<Event> ring;
+
+    private final LongAdder dropped = new LongAdder();
+    private final StringBuilder batch = new StringBuilder(1 << 14);
+    private volatile boolean running;
+    private Thread writer;
+
+    public AccessLog(@Value("${access-log.enabled:true}") boolean enabled,
+                     @Value("${access-log.capacity:8192}") int capacity,
+                     @Value("${access-log.success-sample-rate:0.01}") double successSampleRate,
+                     @Value("${access-log.batch-size:256}") int batchSize,
+                     @Value("${access-log.flush-interval:100ms}") Duration flushInterval,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.successSampleRate = successSampleRate;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.ring = new RingBuffer<>(capacity, Event::new);
+
+        FunctionCounter.builder("access.log.dropped", dropped, LongAdder::sum)
+                .description("Access log events dropped because the writer fell behind")
+                .register(meterRegistry);
+        Gauge.builder("access.log.pending", ring, RingBuffer::size)
+                .description("Access log events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Called on the request thread: a sampling decision, one CAS and a few field stores
+    public void record(long startMillis, long durationNanos, String method, String uri, String query, int status,
+                       String clientIp, String username, AuthOutcome authOutcome) {
+        if (!running) {
+            return;
+        }
+        boolean failure = status >= 400 || (authOutcome != null && authOutcome.isFailure());
+        if (!failure && ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+            return;
+        }
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        Event event = ring.get(sequence);
+        event.startMillis = startMillis;
+        event.durationNanos = durationNanos;
+        event.method = method;
+        event.uri = uri;
+        event.query = query;
+        event.status = status;
+        event.clientIp = clientIp;
+        event.username = username;
+        event.authOutcome = authOutcome;
+        ring.publish(sequence);
+    }
+
+    // Stops the writer after it has written everything already enqueued
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void writeLoop() {
+        long reportedDrops = 0;
+        while (running) {
+            if (ring.drain(this::append, batchSize) > 0) {
+                flush();
+            } else {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+            long drops = dropped.sum();
+            if (drops != reportedDrops) {
+                log.warn("{} access log events dropped because the writer fell behind", drops - reportedDrops);
+                reportedDrops = drops;
+            }
+        }
+        while (ring.drain(this::append, batchSize) > 0) {
+            flush();
+        }
+    }
+
+    private void append(Event event) {
+        if (!batch.isEmpty()) {
+            batch.append('\n');
+        }
+        batch.append("ts=").append(Instant.ofEpochMilli(event.startMillis))
+                .append(" method=").append(event.method)
+                .append(" uri=").append(redact(event.uri));
+        if (event.query != null) {
+            batch.append('?').append(redact(event.query));
+        }
+        batch.append(" status=").append(event.status)
+                .append(" auth=").append(event.authOutcome == null ? "none" : event.authOutcome.getLabel())
+                .append(" user=").append(event.username == null ? "-" : escape(event.username))
+                .append(" ip=").append(event.clientIp)
+                .append(" ms=").append(event.durationNanos / 1_000_000).append('.')
+                .append(event.durationNanos / 100_000 % 10);
+        // Drop references so the slot doesn't keep request data alive
+        event.uri = null;
+        event.query = null;
+        event.username = null;
+        event.clientIp = null;
+    }
+
+    private void flush() {
+        log.info(batch.toString());
+        batch.setLength(0);
+    }
+
+    private static String redact(String value) {
+        if (value.indexOf("eyJ") >= 0) {
+            value = JWT.matcher(value).replaceAll(REDACTED);
+        }
+        if (value.toLowerCase(Locale.ROOT).contains("token")) {
+            value = TOKEN_PARAMETER.matcher(value).replaceAll("$1" + REDACTED);
+        }
+        return value;
+    }
+
+    // Usernames are user input; keep each event on one line with no spaces
+    private static String escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) <= ' ') {
+                StringBuilder escaped = new StringBuilder(value.length());
+                for (int j = 0; j < value.length(); j++) {
+                    char c = value.charAt(j);
+                    escaped.append(c <= ' ' ? '_' : c);
+                }
+                return escaped.toString();
+            }
+        }
+        return value;
+    }
+
+    // One preallocated ring slot, overwritten in place for every event
+    private static final class Event {
+        long startMillis;
+        long durationNanos;
+        String method;
+        String uri;
+        String query;
+        int status;
+        String clientIp;
+        String username;
+        AuthOutcome authOutcome;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.minispringusermanagement;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Admin-only user operations; access to /admin/** is restricted to ADMIN in SecurityConfig
+@RestController
+@RequestMapping("/admin/users")
+public class AdminUserController {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserChangeLog userChangeLog;
+
+    // Bulk import from CSV with a header row (username,email,password[,role])
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<UserImportReport> importCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(userImportService.importCsv(body));
+    }
+
+    // Bulk import from NDJSON, one {"username","email","password"[,"role"]} object per line
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<UserImportReport> importNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(userImportService.importNdjson(body));
+    }
+
+    // Journal of registrations, imports, updates and deletions from sequence 'from', oldest first (max 1000)
+    @GetMapping("/changes")
+    public ResponseEntity<UserChangePage> changes(@RequestParam(defaultValue = "0") long from,
+                                                  @RequestParam(defaultValue = "100") int limit) throws IOException {
+        return ResponseEntity.ok(userChangeLog.read(from, Math.max(1, Math.min(limit, 1000))));
+    }
+}
@@ -1,55 +1,106 @@
 package org.example.minispringusermanagement;
 
+import io.jsonwebtoken.Claims;
+import org.example.minispringusermanagement.filters.AccessLogFilter;
+import org.example.minispringusermanagement.filters.JwtRequestFilter;
 import org.example.minispringusermanagement.util.JwtUtil;
+import org.example.minispringusermanagement.util.TokenDenylist;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @RestController
 public class AuthenticationController {
 
     private final AuthenticationManager authenticationManager;
-    private final UserDetailsService userDetailsService;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenDenylist tokenDenylist;
+    private final LoginThrottle loginThrottle;
 
     // Constructor-based injection to avoid field injection
     @Autowired
     public AuthenticationController(AuthenticationManager authenticationManager,
-                                    UserDetailsService userDetailsService,
-                                    JwtUtil jwtUtil) {
+                                    JwtUtil jwtUtil,
+                                    RefreshTokenService refreshTokenService,
+                                    TokenDenylist tokenDenylist,
+                                    LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
-        this.userDetailsService = userDetailsService;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenDenylist = tokenDenylist;
+        this.loginThrottle = loginThrottle;
     }
 
     // Updated Authentication endpoint with error handling and structured response
     @PostMapping("/authenticate")
-    public ResponseEntity<?> createAuthenticationToken(@Valid @RequestBody AuthenticationRequest authenticationRequest) {
+    public ResponseEntity<?> createAuthenticationToken(@Valid @RequestBody AuthenticationRequest authenticationRequest,
+                                                       HttpServletRequest request) {
+        request.setAttribute(AccessLogFilter.USERNAME_ATTRIBUTE, authenticationRequest.getUsername());
+        // Throttle guessing against one account before spending a BCrypt verification on it
+        loginThrottle.checkUsername(authenticationRequest.getUsername());
+
+        Authentication authentication;
         try {
             // Authenticate the user
-            authenticationManager.authenticate(
+            authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(authenticationRequest.getUsername(), authenticationRequest.getPassword())
             );
         } catch (BadCredentialsException e) {
             // Handle authentication failure more specifically
+            request.setAttribute(AccessLogFilter.AUTH_OUTCOME_ATTRIBUTE, AccessLogFilter.AuthOutcome.PASSWORD_FAILURE);
             return ResponseEntity.status(401).body("Invalid username or password");
+        } catch (PasswordHashingRejectedException e) {
+            // Let ApiExceptionHandler answer with 503 and Retry-After
+            throw e;
         } catch (Exception e) {
             // Generic error handling, though less ideal
+            request.setAttribute(AccessLogFilter.AUTH_OUTCOME_ATTRIBUTE, AccessLogFilter.AuthOutcome.PASSWORD_FAILURE);
             return ResponseEntity.status(500).body("An error occurred during authentication");
         }
 
-        // Load user details and generate JWT token
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(authenticationRequest.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
+        request.setAttribute(AccessLogFilter.AUTH_OUTCOME_ATTRIBUTE, AccessLogFilter.AuthOutcome.PASSWORD_SUCCESS);
+
+        // The authenticated principal already carries the id and role the token embeds
+        final UserPrincipal principal = (UserPrincipal) authentication.getPrincipal();
+        final String jwt = jwtUtil.generateToken(principal);
+        final String refreshToken = refreshTokenService.issue(principal);
+
+        // Return a structured response with the tokens and roles/authorities
+        return ResponseEntity.ok(new AuthenticationResponse(jwt, refreshToken,
+                jwtUtil.getAccessTokenTtl().toSeconds(), principal.getAuthorities()));
+    }
+
+    // Exchange a refresh token for a new access token and a new refresh token, without a password check
+    @PostMapping("/authenticate/refresh")
+    public ResponseEntity<?> refreshAuthenticationToken(@Valid @RequestBody RefreshRequest refreshRequest) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+        if (rotation.getOutcome() != RefreshTokenService.Outcome.ROTATED) {
+            return ResponseEntity.status(401).body("Invalid or expired refresh token");
+        }
+
+        final String jwt = jwtUtil.generateToken(rotation.getPrincipal());
+        return ResponseEntity.ok(new AuthenticationResponse(jwt, rotation.getRefreshToken(),
+                jwtUtil.getAccessTokenTtl().toSeconds(), rotation.getPrincipal().getAuthorities()));
+    }
 
-        // Return a structured response with the token and roles/authorities
-        return ResponseEntity.ok(new AuthenticationResponse(jwt, userDetails.getAuthorities()));
+    // Logout: revokes the access token of this request and, when given, the refresh token of the same login
+    @PostMapping("/authenticate/logout")
+    public ResponseEntity<String> logout(HttpServletRequest request,
+                                         @RequestBody(required = false) RefreshRequest refreshRequest) {
+        if (request.getAttribute(JwtRequestFilter.JWT_CLAIMS_ATTRIBUTE) instanceof Claims claims) {
+            tokenDenylist.revoke(claims);
+        }
+        if (refreshRequest != null) {
+            refreshTokenService.revokeFamily(refreshRequest.getRefreshToken());
+        }
+        return ResponseEntity.ok("Logged out successfully");
     }
 }
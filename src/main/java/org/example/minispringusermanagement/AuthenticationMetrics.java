@@ -0,0 +1,61 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+// Counts username/password logins by outcome from the events the AuthenticationManager publishes;
+// JwtRequestFilter counts token authentications under the same meter with method=jwt
+@Component
+public class AuthenticationMetrics {
+
+    public static final String ATTEMPTS = "auth.attempts";
+
+    private final Counter success;
+    private final Counter badCredentials;
+    private final Counter locked;
+    private final Counter disabled;
+    private final Counter otherFailure;
+
+    public AuthenticationMetrics(MeterRegistry registry) {
+        this.success = attempts(registry, "password", "success");
+        this.badCredentials = attempts(registry, "password", "bad_credentials");
+        this.locked = attempts(registry, "password", "locked");
+        this.disabled = attempts(registry, "password", "disabled");
+        this.otherFailure = attempts(registry, "password", "error");
+    }
+
+    public static Counter attempts(MeterRegistry registry, String method, String outcome) {
+        return Counter.builder(ATTEMPTS)
+                .description("Authentication attempts by method and outcome")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        success.increment();
+    }
+
+    @EventListener
+    public void onFailure(AbstractAuthenticationFailureEvent event) {
+        AuthenticationException exception = event.getException();
+        if (exception instanceof BadCredentialsException) {
+            badCredentials.increment();
+        } else if (exception instanceof LockedException) {
+            locked.increment();
+        } else if (exception instanceof DisabledException) {
+            disabled.increment();
+        } else {
+            otherFailure.increment();
+        }
+    }
+}
@@ -8,10 +8,15 @@ import java.util.Collection;
 public class AuthenticationResponse {
     // Getters
     private String jwt;
+    private String refreshToken;
+    private long expiresIn; // Seconds until the access token (jwt) expires
     private Collection<? extends GrantedAuthority> authorities;
 
-    public AuthenticationResponse(String jwt, Collection<? extends GrantedAuthority> authorities) {
+    public AuthenticationResponse(String jwt, String refreshToken, long expiresIn,
+                                  Collection<? extends GrantedAuthority> authorities) {
         this.jwt = jwt;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
         this.authorities = authorities;
     }
 
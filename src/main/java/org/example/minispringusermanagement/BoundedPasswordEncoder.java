@@ -0,0 +1,153 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs password hashing on a small dedicated pool with a bounded queue, so a login storm can't occupy
+// every request thread; when the queue is full callers fail fast with PasswordHashingRejectedException
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor pool;
+    private final long waitTimeoutMillis;
+    private final long retryAfterSeconds;
+
+    private final LongAdder rejected = new LongAdder();
+    private final HashTimers encodeTimers;
+    private final HashTimers matchesTimers;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity,
+                                  long waitTimeoutMillis, long retryAfterSeconds, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.encodeTimers = new HashTimers(registry, "encode");
+        this.matchesTimers = new HashTimers(registry, "matches");
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.depth", this, BoundedPasswordEncoder::getQueueDepth)
+                .description("Password hashing tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("password.hashing.active", this, BoundedPasswordEncoder::getActiveCount)
+                .description("Password hashing tasks currently running")
+                .register(registry);
+        FunctionCounter.builder("password.hashing.rejected", this, BoundedPasswordEncoder::getRejectedCount)
+                .description("Password hashing requests rejected because the pool was saturated")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword), encodeTimers);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword), matchesTimers);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // The wrapped encoder, for batch work that brings its own threads (e.g. bulk import)
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private <T> T execute(Callable<T> hashing, HashTimers timers) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = pool.submit(() -> {
+                long start = System.nanoTime();
+                timers.queueWait.record(start - submitted, TimeUnit.NANOSECONDS);
+                try {
+                    return hashing.call();
+                } finally {
+                    timers.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing queue is full", retryAfterSeconds);
+        }
+
+        try {
+            return result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Timed out waiting for password hashing", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // Time spent waiting for a hashing thread and time spent hashing, so a slow login shows which one grew
+    private static final class HashTimers {
+        private final Timer queueWait;
+        private final Timer latency;
+
+        HashTimers(MeterRegistry registry, String operation) {
+            this.queueWait = Timer.builder("password.hashing.queue.wait")
+                    .description("Time password hashing tasks spent waiting for a thread")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.latency = Timer.builder("password.hashing.latency")
+                    .description("Time spent hashing or verifying passwords")
+                    .tag("operation", operation)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
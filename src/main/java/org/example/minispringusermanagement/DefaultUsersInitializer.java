@@ -0,0 +1,46 @@
+package org.example.minispringusermanagement;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+// Seeds the default admin and user accounts that used to live in the in-memory user store, and backfills
+// missing user versions
+@Component
+@Order(0)
+public class DefaultUsersInitializer implements ApplicationRunner {
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final UserIdentityIndex userIdentityIndex;
+
+    public DefaultUsersInitializer(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                                   UserIdentityIndex userIdentityIndex) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.userIdentityIndex = userIdentityIndex;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // A version column added to an existing table as nullable leaves old rows without one
+        userRepository.backfillVersions();
+        createIfMissing("admin", "admin@example.com", "adminPass", Role.ADMIN);
+        createIfMissing("user", "user@example.com", "userPass", Role.USER);
+    }
+
+    private void createIfMissing(String username, String email, String password, Role role) {
+        if (userRepository.existsByUsername(username)) {
+            return;
+        }
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword(passwordEncoder.encode(password));
+        user.setRole(role);
+        userRepository.save(user);
+        userIdentityIndex.add(username, email);
+    }
+}
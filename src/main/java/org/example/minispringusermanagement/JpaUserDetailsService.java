@@ -0,0 +1,67 @@
+package org.example.minispringusermanagement;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+public class JpaUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+
+    // Near cache in front of the users table so authenticated requests don't each run a SELECT
+    private final Cache<String, UserPrincipal> userCache;
+
+    public JpaUserDetailsService(UserRepository userRepository,
+                                 @Value("${security.user-cache.max-size:10000}") long maxSize,
+                                 @Value("${security.user-cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.userCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public UserPrincipal loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserPrincipal cached = userCache.get(username, this::loadFromRepository);
+        if (cached == null) {
+            throw new UsernameNotFoundException("User not found: " + username);
+        }
+        // Hand out a copy: the authentication manager erases credentials on the instance it is given
+        return cached.copy();
+    }
+
+    // Called by the authentication provider after a successful login whose stored hash was made at another
+    // BCrypt cost (or without a versioned id); stores the fresh hash of the same password
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserPrincipal principal = (UserPrincipal) user;
+        if (userRepository.updatePasswordHash(principal.getId(), principal.getPassword(), newPassword) == 0) {
+            return principal;  // Changed or deleted since it was loaded; leave the newer row alone
+        }
+        evict(principal.getUsername());
+        return new UserPrincipal(principal.getId(), principal.getUsername(), newPassword, principal.getRole());
+    }
+
+    // Drops the cached entry so the next lookup sees the current row
+    public void evict(String username) {
+        if (username != null) {
+            userCache.invalidate(username);
+        }
+    }
+
+    private UserPrincipal loadFromRepository(String username) {
+        // Returning null leaves unknown usernames uncached
+        return userRepository.findByUsername(username)
+                .map(user -> new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(), user.getRole()))
+                .orElse(null);
+    }
+}
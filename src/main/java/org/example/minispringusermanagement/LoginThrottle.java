@@ -0,0 +1,104 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.minispringusermanagement.util.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Rate limits for the endpoints that hash passwords (/authenticate and /users/register), so a single client
+// can't spend the BCrypt capacity. Client IPs are checked by LoginRateLimitFilter before the request body is
+// read, with separate buckets for logins and registrations; target usernames are checked by the login
+// endpoint before any hashing. Registration is keyed by IP only: a username bucket shared with logins would
+// let anyone lock a real user out by registering under their name.
+@Component
+public class LoginThrottle {
+
+    private final boolean enabled;
+    private final RateLimiter<String> byIp;
+    private final RateLimiter<String> registrationsByIp;
+    private final RateLimiter<String> byUsername;
+    private final Counter ipThrottled;
+    private final Counter registrationIpThrottled;
+    private final Counter usernameThrottled;
+
+    public LoginThrottle(@Value("${rate-limit.login.enabled:true}") boolean enabled,
+                         @Value("${rate-limit.login.ip.per-minute:60}") double ipPerMinute,
+                         @Value("${rate-limit.login.ip.burst:20}") int ipBurst,
+                         @Value("${rate-limit.login.username.per-minute:10}") double usernamePerMinute,
+                         @Value("${rate-limit.login.username.burst:5}") int usernameBurst,
+                         @Value("${rate-limit.registration.ip.per-minute:10}") double registrationPerMinute,
+                         @Value("${rate-limit.registration.ip.burst:5}") int registrationBurst,
+                         @Value("${rate-limit.login.max-keys:100000}") int maxKeys,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.byIp = new RateLimiter<>(ipPerMinute / 60, ipBurst, maxKeys);
+        this.registrationsByIp = new RateLimiter<>(registrationPerMinute / 60, registrationBurst, maxKeys);
+        this.byUsername = new RateLimiter<>(usernamePerMinute / 60, usernameBurst, maxKeys);
+        this.ipThrottled = throttledCounter(meterRegistry, "ip");
+        this.registrationIpThrottled = throttledCounter(meterRegistry, "registration_ip");
+        this.usernameThrottled = throttledCounter(meterRegistry, "username");
+        Gauge.builder("login.throttle.keys", byIp, RateLimiter::size).tag("key", "ip").register(meterRegistry);
+        Gauge.builder("login.throttle.keys", registrationsByIp, RateLimiter::size).tag("key", "registration_ip")
+                .register(meterRegistry);
+        Gauge.builder("login.throttle.keys", byUsername, RateLimiter::size).tag("key", "username").register(meterRegistry);
+    }
+
+    // Seconds until the client IP may try to log in again, or 0 if it may proceed now
+    public long checkIp(String ip) {
+        return check(byIp, ipThrottled, ip);
+    }
+
+    // Seconds until the client IP may register again, or 0 if it may proceed now
+    public long checkRegistrationIp(String ip) {
+        return check(registrationsByIp, registrationIpThrottled, ip);
+    }
+
+    // Throws LoginThrottledException if the username has used up its login attempts
+    public void checkUsername(String username) {
+        if (!enabled || username == null) {
+            return;
+        }
+        long waitNanos = byUsername.tryAcquire(username.trim().toLowerCase(Locale.ROOT));
+        if (waitNanos != 0) {
+            usernameThrottled.increment();
+            throw new LoginThrottledException("Too many attempts for this username", toRetryAfterSeconds(waitNanos));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.login.sweep-interval:PT1M}")
+    public void evictIdle() {
+        byIp.evictIdle();
+        registrationsByIp.evictIdle();
+        byUsername.evictIdle();
+    }
+
+    private long check(RateLimiter<String> limiter, Counter throttled, String ip) {
+        if (!enabled || ip == null) {
+            return 0;
+        }
+        long waitNanos = limiter.tryAcquire(ip);
+        if (waitNanos == 0) {
+            return 0;
+        }
+        throttled.increment();
+        return toRetryAfterSeconds(waitNanos);
+    }
+
+    // Rounded up to whole seconds, and at least 1, so a client honouring Retry-After never comes back too early
+    static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+    }
+
+    private static Counter throttledCounter(MeterRegistry registry, String key) {
+        return Counter.builder("login.throttled")
+                .description("Login and registration attempts rejected by the rate limiter")
+                .tag("key", key)
+                .register(registry);
+    }
+}
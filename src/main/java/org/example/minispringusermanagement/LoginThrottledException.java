@@ -0,0 +1,15 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+// Thrown when a username has used up its login attempts; mapped to 429 with a Retry-After header
+@Getter
+public class LoginThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -2,8 +2,10 @@ package org.example.minispringusermanagement;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Periodic cleanup of expired refresh tokens
 public class MiniSpringUserManagementApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,15 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+// Thrown when the password hashing pool is saturated; mapped to 503 with a Retry-After header
+@Getter
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -2,9 +2,34 @@ package org.example.minispringusermanagement;
 
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
+import org.example.minispringusermanagement.util.BreachedPasswordFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 
 public class PasswordStrengthValidator implements ConstraintValidator<PasswordStrength, String> {
 
+    private static final String SPECIAL_CHARACTERS = "!@#$%^&*(),.?\":{}|<>";
+    private static final boolean[] SPECIAL = new boolean[128];
+
+    static {
+        for (int i = 0; i < SPECIAL_CHARACTERS.length(); i++) {
+            SPECIAL[SPECIAL_CHARACTERS.charAt(i)] = true;
+        }
+    }
+
+    // Optional: only present when security.breached-passwords.file is configured
+    private final BreachedPasswordFilter breachedPasswords;
+
+    // Used when the validator is created outside Spring (e.g. by Hibernate Validator directly)
+    public PasswordStrengthValidator() {
+        this.breachedPasswords = null;
+    }
+
+    @Autowired
+    public PasswordStrengthValidator(ObjectProvider<BreachedPasswordFilter> breachedPasswords) {
+        this.breachedPasswords = breachedPasswords.getIfAvailable();
+    }
+
     @Override
     public void initialize(PasswordStrength constraintAnnotation) {
     }
@@ -12,10 +37,43 @@ public class PasswordStrengthValidator implements ConstraintValidator<PasswordSt
     @Override
     public boolean isValid(String password, ConstraintValidatorContext context) {
         // Password must be at least 8 characters long and contain at least one digit, one lowercase, one uppercase, and one special character
-        return password != null && password.length() >= 8 &&
-                password.matches(".*\\d.*") &&
-                password.matches(".*[a-z].*") &&
-                password.matches(".*[A-Z].*") &&
-                password.matches(".*[!@#$%^&*(),.?\":{}|<>].*");
+        // A missing password is left to @NotBlank, so optional fields (e.g. in a partial update) can use this too
+        if (password == null) {
+            return true;
+        }
+        if (password.length() < 8) {
+            return false;
+        }
+
+        // Single pass over the characters instead of four regex scans
+        boolean digit = false, lower = false, upper = false, special = false;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c >= 'a' && c <= 'z') {
+                lower = true;
+            } else if (c >= 'A' && c <= 'Z') {
+                upper = true;
+            } else if (c < 128 && SPECIAL[c]) {
+                special = true;
+            } else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                // The former '.*x.*' regexes never matched across line terminators
+                return false;
+            }
+        }
+        if (!(digit && lower && upper && special)) {
+            return false;
+        }
+
+        if (breachedPasswords != null && breachedPasswords.mightContain(password)) {
+            if (context != null) {
+                context.disableDefaultConstraintViolation();
+                context.buildConstraintViolationWithTemplate("Password appears in a list of breached passwords.")
+                        .addConstraintViolation();
+            }
+            return false;
+        }
+        return true;
     }
 }
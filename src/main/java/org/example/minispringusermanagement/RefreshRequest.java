@@ -0,0 +1,13 @@
+package org.example.minispringusermanagement;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class RefreshRequest {
+
+    @NotBlank(message = "Refresh token is mandatory")
+    private String refreshToken;
+}
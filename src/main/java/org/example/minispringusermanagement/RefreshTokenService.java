@@ -0,0 +1,149 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Issues opaque refresh tokens and exchanges them for new ones. Every token is single use: a refresh
+// marks it used and issues its successor in the same family. A used token coming back means it was
+// copied, so the whole family is deleted and both the thief and the owner have to log in again.
+@Service
+public class RefreshTokenService {
+
+    public enum Outcome { ROTATED, INVALID, EXPIRED, REUSED }
+
+    @Getter
+    public static final class Rotation {
+        private final Outcome outcome;
+        private final UserPrincipal principal;
+        private final String refreshToken;
+
+        private Rotation(Outcome outcome, UserPrincipal principal, String refreshToken) {
+            this.outcome = outcome;
+            this.principal = principal;
+            this.refreshToken = refreshToken;
+        }
+
+        private static Rotation rejected(Outcome outcome) {
+            return new Rotation(outcome, null, null);
+        }
+    }
+
+    private static final int TOKEN_BYTES = 32;
+    // Base64url of TOKEN_BYTES without padding; anything longer is rejected before hashing
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private final SecureRandom random = new SecureRandom();
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final Duration ttl;
+    private final Map<Outcome, Counter> attempts = new EnumMap<>(Outcome.class);
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+                               @Value("${jwt.refresh-token.ttl:14d}") Duration ttl, MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.ttl = ttl;
+        for (Outcome outcome : Outcome.values()) {
+            String tag = outcome == Outcome.ROTATED ? "success" : outcome.name().toLowerCase(Locale.ROOT);
+            attempts.put(outcome, AuthenticationMetrics.attempts(meterRegistry, "refresh", tag));
+        }
+    }
+
+    // Starts a new token family after a password login; the user row is referenced, not loaded
+    @Transactional
+    public String issue(UserPrincipal principal) {
+        return issue(userRepository.getReferenceById(principal.getId()), random.nextLong());
+    }
+
+    // One lookup by token hash, one conditional update and one insert; no password hashing
+    @Transactional
+    public Rotation rotate(String refreshToken) {
+        Rotation rotation = exchange(refreshToken);
+        attempts.get(rotation.getOutcome()).increment();
+        return rotation;
+    }
+
+    // Ends the login the token belongs to; unknown tokens are ignored
+    @Transactional
+    public void revokeFamily(String refreshToken) {
+        if (refreshToken == null || refreshToken.length() > MAX_TOKEN_LENGTH) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.deleteFamily(token.getFamilyId()));
+    }
+
+    // Ends every login of the user
+    @Transactional
+    public void revokeAll(long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    // Expired tokens are removed in one statement instead of being checked row by row
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval:PT1H}")
+    @Transactional
+    public void deleteExpired() {
+        refreshTokenRepository.deleteExpired(Instant.now());
+    }
+
+    private Rotation exchange(String refreshToken) {
+        if (refreshToken == null || refreshToken.length() > MAX_TOKEN_LENGTH) {
+            return Rotation.rejected(Outcome.INVALID);
+        }
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(refreshToken)).orElse(null);
+        if (current == null) {
+            return Rotation.rejected(Outcome.INVALID);
+        }
+        if (current.getExpiresAt().isBefore(Instant.now())) {
+            return Rotation.rejected(Outcome.EXPIRED);
+        }
+        if (current.isUsed() || refreshTokenRepository.markUsed(current.getId()) == 0) {
+            refreshTokenRepository.deleteFamily(current.getFamilyId());
+            return Rotation.rejected(Outcome.REUSED);
+        }
+
+        User user = current.getUser();
+        String next = issue(user, current.getFamilyId());
+        return new Rotation(Outcome.ROTATED,
+                new UserPrincipal(user.getId(), user.getUsername(), null, user.getRole()), next);
+    }
+
+    private String issue(User user, long familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(token));
+        refreshToken.setUser(user);
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setExpiresAt(Instant.now().plus(ttl));
+        refreshTokenRepository.save(refreshToken);
+        return token;
+    }
+
+    private static byte[] hash(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
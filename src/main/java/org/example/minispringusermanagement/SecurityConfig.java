@@ -1,25 +1,37 @@
 package org.example.minispringusermanagement;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.example.minispringusermanagement.filters.JwtRequestFilter;
+import org.example.minispringusermanagement.util.BCryptCostCalibrator;
+import org.example.minispringusermanagement.util.BreachedPasswordFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
 @Configuration
+@EnableMethodSecurity // Per-endpoint rules in UserController are checked against the token's principal
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     private final JwtRequestFilter jwtRequestFilter;
 
     @Autowired
@@ -32,10 +44,11 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/users/register", "/authenticate").permitAll() // Allow registration and authentication
+                        .requestMatchers("/users/register", "/authenticate", "/authenticate/refresh").permitAll() // Allow registration and authentication
                         .requestMatchers("/users/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/h2-console/**").permitAll()
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Scraped without a token; only served on the loopback management port
                         .anyRequest().authenticated()
                 )
                 .headers(headers -> headers
@@ -47,23 +60,40 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // BCrypt runs on its own bounded pool instead of on request threads. The cost is calibrated to this host
+    // unless fixed; stored hashes made at another cost are rehashed on the owner's next login.
     @Bean
-    public UserDetailsService userDetailsService() {
-        return new InMemoryUserDetailsManager(
-                org.springframework.security.core.userdetails.User.withUsername("admin")
-                        .password(passwordEncoder().encode("adminPass"))
-                        .roles("ADMIN")
-                        .build(),
-                org.springframework.security.core.userdetails.User.withUsername("user")
-                        .password(passwordEncoder().encode("userPass"))
-                        .roles("USER")
-                        .build()
-        );
+    public BoundedPasswordEncoder passwordEncoder(@Value("${security.password-hashing.threads:0}") int threads,
+                                                  @Value("${security.password-hashing.queue-capacity:100}") int queueCapacity,
+                                                  @Value("${security.password-hashing.wait-timeout-ms:5000}") long waitTimeoutMillis,
+                                                  @Value("${security.password-hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                                                  @Value("${security.password-hashing.cost:0}") int fixedCost,
+                                                  @Value("${security.password-hashing.target-latency:100ms}") Duration targetLatency,
+                                                  @Value("${security.password-hashing.min-cost:10}") int minCost,
+                                                  @Value("${security.password-hashing.max-cost:16}") int maxCost,
+                                                  MeterRegistry meterRegistry) {
+        int cost;
+        if (fixedCost > 0) {
+            cost = fixedCost;
+            log.info("Password hashing uses BCrypt cost {} (configured)", cost);
+        } else {
+            cost = BCryptCostCalibrator.calibrate(targetLatency, minCost, maxCost);
+            log.info("Password hashing uses BCrypt cost {} (calibrated for a {} ms target)", cost, targetLatency.toMillis());
+        }
+        Gauge.builder("password.hashing.cost", () -> cost)
+                .description("BCrypt cost factor used for new password hashes")
+                .register(meterRegistry);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(BCryptCostCalibrator.encoder(cost), poolSize, queueCapacity,
+                waitTimeoutMillis, retryAfterSeconds, meterRegistry);
     }
 
+    // Memory-mapped Bloom filter of breached passwords, consulted by PasswordStrengthValidator when configured
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @ConditionalOnProperty("security.breached-passwords.file")
+    public BreachedPasswordFilter breachedPasswordFilter(@Value("${security.breached-passwords.file}") Path file) throws IOException {
+        return BreachedPasswordFilter.open(file);
     }
 
     @Bean
@@ -0,0 +1,20 @@
+package org.example.minispringusermanagement;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Registers SqlStatementListener with every Hibernate session only when statement counting is on, so sessions
+// in the prod profile don't carry a listener that no filter reads
+@Configuration
+@ConditionalOnProperty(name = "sql-statements.enabled", matchIfMissing = true)
+public class SqlStatementConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementListenerCustomizer() {
+        return properties -> properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER,
+                SqlStatementListener.class.getName());
+    }
+}
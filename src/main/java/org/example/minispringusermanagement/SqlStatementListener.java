@@ -0,0 +1,67 @@
+package org.example.minispringusermanagement;
+
+import org.hibernate.SessionEventListener;
+
+// Counts the JDBC statements Hibernate executes on the current thread and the time spent executing them.
+// Registered for every session by SqlStatementConfig (unless sql-statements.enabled is false); SqlStatementFilter
+// opens a count per HTTP request. A JDBC batch is one round trip and counts once. Threads without an open count
+// are not tracked.
+public class SqlStatementListener implements SessionEventListener {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private long executeStart;
+
+    // Starts counting on this thread, replacing any count still open
+    public static Counts start() {
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record();
+    }
+
+    private void record() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+            counts.nanos += System.nanoTime() - executeStart;
+        }
+    }
+
+    // Statements executed and JDBC execution time since start()
+    public static final class Counts {
+        private int statements;
+        private long nanos;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
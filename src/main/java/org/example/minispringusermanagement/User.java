@@ -1,36 +1,68 @@
 package org.example.minispringusermanagement;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;  // JPA annotations from Jakarta EE
 import jakarta.validation.constraints.*;  // Validation annotations from Jakarta EE
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "users")
+@EntityListeners(UserSearchIndexListener.class)  // Keeps the in-memory search index current
+@DynamicUpdate  // UPDATE only the columns that changed, e.g. an email change doesn't rewrite the password hash
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_UNIQUE_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = User.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email")
+})
 public class User {
 
+    // Named so constraint violations can be mapped back to the offending column
+    public static final String USERNAME_UNIQUE_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_users_email";
+
+    // Validation group for checks that apply to request bodies but not to the persisted entity
+    public interface RawPassword {
+    }
+
+    // Validation group for fields only required when a user is created; a PUT may leave the password out
+    public interface NewUser {
+    }
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts; one sequence call per 50 ids
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Username is mandatory")
     @Size(min = 4, max = 20, message = "Username must be between 4 and 20 characters")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
-    @NotBlank(message = "Password is mandatory")
+    @NotBlank(message = "Password is mandatory", groups = NewUser.class)
     @Size(min = 8, message = "Password must have at least 8 characters")
-    // You can add @Pattern here to enforce regex rules if needed
+    // Only the raw password in a request is checked for strength (RawPassword group); the stored value is a hash
+    @PasswordStrength(groups = RawPassword.class)
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)  // Accepted in request bodies, never serialized back
     private String password;
 
     @Email(message = "Email should be valid")
     @NotBlank(message = "Email is mandatory")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private Role role;
+
+    // Optimistic locking: every UPDATE checks and bumps it, so concurrent edits fail instead of overwriting each other.
+    // The default fills the column for existing rows when ddl-auto adds it.
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
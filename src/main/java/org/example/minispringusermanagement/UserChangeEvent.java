@@ -0,0 +1,31 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+// One entry of the user change journal; actorId and actor are null when nobody was authenticated (registration)
+@Getter
+public class UserChangeEvent {
+    private final long sequence;
+    private final Instant timestamp;
+    private final UserChangeLog.Type type;
+    private final long userId;
+    private final String username;
+    private final List<String> changedFields;
+    private final Long actorId;
+    private final String actor;
+
+    public UserChangeEvent(long sequence, Instant timestamp, UserChangeLog.Type type, long userId, String username,
+                           List<String> changedFields, Long actorId, String actor) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.userId = userId;
+        this.username = username;
+        this.changedFields = changedFields;
+        this.actorId = actorId;
+        this.actor = actor;
+    }
+}
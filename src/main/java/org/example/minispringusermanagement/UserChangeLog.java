@@ -0,0 +1,302 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.minispringusermanagement.util.RingBuffer;
+import org.example.minispringusermanagement.util.SegmentedJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Audit trail of user registrations, imports, updates and deletions. Request threads copy the change into a
+// preallocated ring buffer slot; a background writer drains the ring in batches, appends the events to a
+// memory-mapped SegmentedJournal and forces each batch to disk, so requests never wait on I/O or fsync.
+//
+// Unlike the access log, audit events are not sampled or dropped under load: when the writer falls a full ring
+// behind, producers wait for a free slot. The wait is bounded (user-change-log.max-wait), so a stuck writer or
+// disk drops and counts events instead of hanging every request that changes a user. A failing write or fsync
+// is counted and logged, and the writer carries on. On shutdown the writer drains everything already enqueued
+// before closing the journal; events recorded after that are counted as dropped.
+@Component
+public class UserChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeLog.class);
+
+    public enum Type { REGISTERED, IMPORTED, UPDATED, DELETED }
+
+    // Changed-field bits
+    public static final int USERNAME = 1;
+    public static final int EMAIL = 2;
+    public static final int PASSWORD = 4;
+    public static final int ROLE = 8;
+    private static final String[] FIELD_NAMES = {"username", "email", "password", "role"};
+
+    private static final int MAX_STRING_BYTES = 1024;
+    private static final long FULL_RING_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxWaitNanos;
+    private final RingBuffer<Event> ring;
+
+    private final LongAdder fullRingWaits = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder forceFailures = new LongAdder();
+    private final LongAdder droppedFull = new LongAdder();
+    private final LongAdder droppedStopped = new LongAdder();
+    private final ByteBuffer scratch = ByteBuffer.allocate(3 * MAX_STRING_BYTES);
+    private SegmentedJournal journal;
+    private volatile boolean running;
+    private Thread writer;
+
+    public UserChangeLog(@Value("${user-change-log.enabled:true}") boolean enabled,
+                         @Value("${user-change-log.directory:#{null}}") Path directory,
+                         @Value("${user-change-log.segment-size:64MB}") DataSize segmentSize,
+                         @Value("${user-change-log.capacity:4096}") int capacity,
+                         @Value("${user-change-log.batch-size:256}") int batchSize,
+                         @Value("${user-change-log.flush-interval:50ms}") Duration flushInterval,
+                         @Value("${user-change-log.max-wait:1s}") Duration maxWait,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.ring = new RingBuffer<>(capacity, Event::new);
+
+        Gauge.builder("user.change.log.pending", ring, RingBuffer::size)
+                .description("User change events waiting to be written to the journal")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change.log.full.waits", fullRingWaits, LongAdder::sum)
+                .description("Times a request waited because the journal writer was a full ring behind")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change.log.write.failures", writeFailures, LongAdder::sum)
+                .description("User change events that could not be written to the journal")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change.log.force.failures", forceFailures, LongAdder::sum)
+                .description("Batches of user change events that could not be forced to disk")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change.log.dropped", droppedFull, LongAdder::sum)
+                .description("User change events dropped without being written")
+                .tag("reason", "full")
+                .register(meterRegistry);
+        FunctionCounter.builder("user.change.log.dropped", droppedStopped, LongAdder::sum)
+                .description("User change events dropped without being written")
+                .tag("reason", "stopped")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (directory == null || directory.toString().isBlank()) {
+            throw new IllegalStateException(
+                    "Set user-change-log.directory, or user-change-log.enabled=false to run without the journal");
+        }
+        journal = SegmentedJournal.open(directory, segmentSize);
+        running = true;
+        writer = new Thread(this::writeLoop, "user-change-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Called on the request thread after the change is committed; 'changedFields' is a mask of USERNAME, EMAIL...
+    // The acting user is taken from the security context (none for self-registration).
+    public void record(Type type, long userId, String username, int changedFields) {
+        if (!running) {
+            if (enabled) {
+                droppedStopped.increment();
+            }
+            return;
+        }
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            fullRingWaits.increment();
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while ((sequence = ring.claim()) < 0) {
+                if (System.nanoTime() - deadline >= 0) {
+                    droppedFull.increment();
+                    log.warn("Dropped {} event for user {}: the change journal writer is a full ring behind",
+                            type, userId);
+                    return;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+            }
+        }
+        Event event = ring.get(sequence);
+        event.timestampMillis = System.currentTimeMillis();
+        event.type = type;
+        event.userId = userId;
+        event.username = username;
+        event.changedFields = changedFields;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal actor) {
+            event.actorId = actor.getId();
+            event.actor = actor.getUsername();
+        } else {
+            event.actorId = -1;
+            event.actor = null;
+        }
+        ring.publish(sequence);
+    }
+
+    // Up to 'limit' events starting at sequence 'from', oldest first, for auditors and downstream consumers
+    // that tail the stream by passing back 'nextSequence'
+    public UserChangePage read(long from, int limit) throws IOException {
+        if (journal == null) {
+            return new UserChangePage(List.of(), from);
+        }
+        List<UserChangeEvent> events = new ArrayList<>();
+        long next = journal.read(from, limit, (sequence, payload) -> events.add(decode(sequence, payload)));
+        return new UserChangePage(events, next);
+    }
+
+    // Stops the writer after it has written and forced everything already enqueued
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+            if (writer.isAlive()) {
+                // Closing the journal under it is safe; its remaining appends fail and are counted
+                log.warn("User change journal writer did not finish within 30s; closing the journal");
+            }
+            // Requests that got past the running check while the writer was finishing
+            int left = ring.size();
+            if (left > 0) {
+                droppedStopped.add(left);
+                log.warn("Dropped {} user change events enqueued after the journal writer stopped", left);
+            }
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (ring.drain(this::append, batchSize) > 0) {
+                force();
+            } else {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+        while (ring.drain(this::append, batchSize) > 0) {
+            force();
+        }
+    }
+
+    // The batch stays in the mapped segment and is forced with the next one; the writer must outlive a bad fsync
+    private void force() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            forceFailures.increment();
+            log.error("Could not force user change events to the journal", e);
+        }
+    }
+
+    private void append(Event event) {
+        try {
+            journal.append(encode(event));
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+            log.error("Could not write {} event for user {} to the change journal", event.type, event.userId, e);
+        } finally {
+            // Drop references so the slot doesn't keep request data alive
+            event.username = null;
+            event.actor = null;
+        }
+    }
+
+    // Payload: long timestamp, byte type, long user id, byte changed fields, long actor id (-1 for none),
+    // then username and actor as length-prefixed UTF-8 (length -1 for null)
+    private ByteBuffer encode(Event event) {
+        scratch.clear();
+        scratch.putLong(event.timestampMillis)
+                .put((byte) event.type.ordinal())
+                .putLong(event.userId)
+                .put((byte) event.changedFields)
+                .putLong(event.actorId);
+        putString(event.username);
+        putString(event.actor);
+        return scratch.flip();
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            scratch.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        scratch.putShort((short) length).put(bytes, 0, length);
+    }
+
+    private static UserChangeEvent decode(long sequence, ByteBuffer payload) {
+        Instant timestamp = Instant.ofEpochMilli(payload.getLong());
+        Type type = Type.values()[payload.get()];
+        long userId = payload.getLong();
+        int changedFields = payload.get();
+        long actorId = payload.getLong();
+        String username = getString(payload);
+        String actor = getString(payload);
+
+        List<String> fields = new ArrayList<>(FIELD_NAMES.length);
+        for (int i = 0; i < FIELD_NAMES.length; i++) {
+            if ((changedFields & (1 << i)) != 0) {
+                fields.add(FIELD_NAMES[i]);
+            }
+        }
+        return new UserChangeEvent(sequence, timestamp, type, userId, username, fields,
+                actorId < 0 ? null : actorId, actor);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // One preallocated ring slot, overwritten in place for every event
+    private static final class Event {
+        long timestampMillis;
+        Type type;
+        long userId;
+        String username;
+        int changedFields;
+        long actorId;
+        String actor;
+    }
+}
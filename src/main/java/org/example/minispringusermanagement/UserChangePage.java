@@ -0,0 +1,17 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// A run of journal events; pass nextSequence as 'from' to continue tailing
+@Getter
+public class UserChangePage {
+    private final List<UserChangeEvent> events;
+    private final long nextSequence;
+
+    public UserChangePage(List<UserChangeEvent> events, long nextSequence) {
+        this.events = events;
+        this.nextSequence = nextSequence;
+    }
+}
@@ -2,13 +2,23 @@ package org.example.minispringusermanagement;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.groups.Default;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,15 +26,38 @@ import java.util.stream.Collectors;
 @RequestMapping("/users")
 public class UserController {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final int DEFAULT_SEARCH_LIMIT = 20;
+    static final int MAX_SEARCH_LIMIT = 100;
+
+    // Clients may keep a profile but must revalidate it with its ETag before every use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private UserIdentityIndex userIdentityIndex;
+
+    @Autowired
+    private UserUpdateService userUpdateService;
+
+    @Autowired
+    private UserSearchIndex userSearchIndex;
+
+    @Autowired
+    private UserChangeLog userChangeLog;
+
     // Register endpoint (public)
     @PostMapping("/register")
-    public ResponseEntity<String> registerUser(@Valid @RequestBody User user, BindingResult bindingResult) {
+    public ResponseEntity<String> registerUser(@Validated({Default.class, User.RawPassword.class, User.NewUser.class}) @RequestBody User user, BindingResult bindingResult) {
         // Handle validation errors
         if (bindingResult.hasErrors()) {
             // Collect all validation error messages
@@ -35,60 +68,131 @@ public class UserController {
             return ResponseEntity.badRequest().body(errorMessages);
         }
 
-        // Check if username or email already exists
-        if (userRepository.existsByUsername(user.getUsername())) {
-            return ResponseEntity.badRequest().body("Username is already taken.");
-        }
-        if (userRepository.existsByEmail(user.getEmail())) {
-            return ResponseEntity.badRequest().body("Email is already registered.");
+        // Check if username or email already exists, in memory; the database constraints remain the final word
+        UserIdentityIndex.Conflict conflict = userIdentityIndex.reserve(user.getUsername(), user.getEmail());
+        if (conflict != null) {
+            return ResponseEntity.badRequest().body(conflict.getMessage());
         }
 
-        // Encode password and assign default role
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        user.setRole(Role.USER);  // By default, all registered users are given USER role
-        userRepository.save(user);
+        try {
+            // Encode password and assign default role
+            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            user.setRole(Role.USER);  // By default, all registered users are given USER role
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            conflict = UserIdentityIndex.conflictOf(e);
+            userIdentityIndex.releaseUnlessTaken(user.getUsername(), user.getEmail(), conflict);
+            if (conflict == null) {
+                throw e;
+            }
+            return ResponseEntity.badRequest().body(conflict.getMessage());
+        } catch (RuntimeException e) {
+            userIdentityIndex.release(user.getUsername(), user.getEmail());
+            throw e;
+        }
 
+        userChangeLog.record(UserChangeLog.Type.REGISTERED, user.getId(), user.getUsername(),
+                UserChangeLog.USERNAME | UserChangeLog.EMAIL | UserChangeLog.PASSWORD | UserChangeLog.ROLE);
         return ResponseEntity.ok("User registered successfully");
     }
 
     // Get user by ID - Only ADMIN can access other users, USER can access only their own profile
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id, Authentication authentication) {
-        // Fetch the authenticated user
-        User loggedInUser = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("Logged-in user not found"));
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.id")
+    public ResponseEntity<User> getUserById(@PathVariable Long id,
+                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Polling clients usually hold the current version: check it with a version-only query and skip the load
+        if (ifNoneMatch != null) {
+            long version = userRepository.findVersionById(id)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (UserETag.noneMatchHits(ifNoneMatch, id, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(UserETag.of(id, version))
+                        .cacheControl(REVALIDATE)
+                        .build();
+            }
+        }
 
         // Fetch the user being requested
         User requestedUser = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        // Only allow USER to access their own profile or allow ADMIN to access any profile
-        if (!loggedInUser.getRole().equals(Role.ADMIN) && !loggedInUser.getId().equals(id)) {
-            return ResponseEntity.status(403).body(null);  // 403 Forbidden
-        }
-
-        return ResponseEntity.ok(requestedUser);
+        return ResponseEntity.ok()
+                .eTag(UserETag.of(id, requestedUser.getVersion()))
+                .cacheControl(REVALIDATE)
+                .body(requestedUser);
     }
 
-    // Get all users - Only ADMIN can view all users
+    // Get all users - Only ADMIN can view all users, one keyset page at a time
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers(Authentication authentication) {
-        // Check if the logged-in user is an ADMIN
-        User loggedInUser = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("Logged-in user not found"));
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserPage> getAllUsers(@RequestParam(required = false) Long cursor,
+                                                @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        // Seek past the cursor instead of using OFFSET, so every page costs the same
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserSummary> users = userRepository.findSummariesAfter(cursor == null ? 0L : cursor, Limit.of(pageSize));
+        Long nextCursor = users.size() < pageSize ? null : users.get(users.size() - 1).getId();
+        return ResponseEntity.ok(new UserPage(users, nextCursor));
+    }
 
-        if (!loggedInUser.getRole().equals(Role.ADMIN)) {
-            return ResponseEntity.status(403).build();  // 403 Forbidden for non-ADMINs
+    // Search users by username or email - Only ADMIN; served from the in-memory trigram index, ranked and paged
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> searchUsers(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit) {
+        if (q.trim().length() < UserSearchIndex.MIN_QUERY_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body("Search query must have at least " + UserSearchIndex.MIN_QUERY_LENGTH + " characters");
         }
+        int pageSize = Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+        return ResponseEntity.ok(userSearchIndex.search(q, Math.max(0, offset), pageSize));
+    }
 
-        // Return all users for ADMIN
-        return ResponseEntity.ok(userRepository.findAll());
+    // Stream all users as NDJSON - Only ADMIN, selected with 'Accept: application/x-ndjson'
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void streamAllUsers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userExportService.writeNdjson(response.getOutputStream());
     }
 
     // Update user details - USER can update their own info, ADMIN can update any user
     @PutMapping("/{id}")
-    public ResponseEntity<String> updateUser(@PathVariable Long id, @Valid @RequestBody User updatedUser,
-                                             BindingResult bindingResult, Authentication authentication) {
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.id")
+    public ResponseEntity<String> updateUser(@PathVariable Long id,
+                                             @Validated({Default.class, User.RawPassword.class}) @RequestBody User updatedUser,
+                                             BindingResult bindingResult,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return applyUpdate(id, UserPatch.of(updatedUser), bindingResult, ifMatch);
+    }
+
+    // Partially update user details - only the fields present in the body change; same access rules as PUT
+    @PatchMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.id")
+    public ResponseEntity<String> patchUser(@PathVariable Long id, @Valid @RequestBody UserPatch patch,
+                                            BindingResult bindingResult,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return applyUpdate(id, patch, bindingResult, ifMatch);
+    }
+
+    // Revoke all tokens of a user (logout everywhere) - USER can revoke their own, ADMIN anyone's
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN') or #id == principal.id")
+    public ResponseEntity<String> revokeUserTokens(@PathVariable Long id) {
+        userUpdateService.revokeTokens(id);
+        return ResponseEntity.ok("Tokens revoked successfully");
+    }
+
+    // Delete user - Only ADMIN can delete users
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> deleteUser(@PathVariable Long id) {
+        userUpdateService.delete(id);
+        return ResponseEntity.ok("User deleted successfully");
+    }
+
+    private ResponseEntity<String> applyUpdate(Long id, UserPatch patch, BindingResult bindingResult, String ifMatch) {
         // Handle validation errors
         if (bindingResult.hasErrors()) {
             String errorMessages = bindingResult.getAllErrors()
@@ -98,41 +202,10 @@ public class UserController {
             return ResponseEntity.badRequest().body(errorMessages);
         }
 
-        // Fetch the logged-in user
-        User loggedInUser = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("Logged-in user not found"));
-
-        // Fetch the user being updated
-        User userToUpdate = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Only allow USER to update their own profile or allow ADMIN to update any profile
-        if (!loggedInUser.getRole().equals(Role.ADMIN) && !loggedInUser.getId().equals(id)) {
-            return ResponseEntity.status(403).body("You are not allowed to update this user.");
+        UserIdentityIndex.Conflict conflict = userUpdateService.update(id, patch, ifMatch);
+        if (conflict != null) {
+            return ResponseEntity.badRequest().body(conflict.getMessage());
         }
-
-        // Update user details
-        userToUpdate.setUsername(updatedUser.getUsername());
-        userToUpdate.setPassword(passwordEncoder.encode(updatedUser.getPassword()));  // Re-encode password
-        userToUpdate.setEmail(updatedUser.getEmail());
-
-        userRepository.save(userToUpdate);
         return ResponseEntity.ok("User updated successfully");
     }
-
-    // Delete user - Only ADMIN can delete users
-    @DeleteMapping("/{id}")
-    public ResponseEntity<String> deleteUser(@PathVariable Long id, Authentication authentication) {
-        // Fetch the logged-in user
-        User loggedInUser = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new RuntimeException("Logged-in user not found"));
-
-        if (!loggedInUser.getRole().equals(Role.ADMIN)) {
-            return ResponseEntity.status(403).body("Only ADMIN can delete users.");
-        }
-
-        // Fetch the user being deleted
-        userRepository.deleteById(id);
-        return ResponseEntity.ok("User deleted successfully");
-    }
 }
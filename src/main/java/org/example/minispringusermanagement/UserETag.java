@@ -0,0 +1,52 @@
+package org.example.minispringusermanagement;
+
+// Strong entity tags for users, "<id>-<version>". The version changes with every update, so the tag of a
+// user changes exactly when its representation does. A missing version (a row older than the version column
+// that the startup backfill hasn't reached yet) counts as version 0.
+public final class UserETag {
+
+    private UserETag() {
+    }
+
+    public static String of(long id, Long version) {
+        return "\"" + id + "-" + versionOf(version) + "\"";
+    }
+
+    public static long versionOf(Long version) {
+        return version == null ? 0 : version;
+    }
+
+    // Whether an If-None-Match header ("*" or a list of tags) matches the current tag. Weak comparison
+    // (RFC 9110 13.1.2): a weak tag matches its strong counterpart.
+    public static boolean noneMatchHits(String ifNoneMatch, long id, Long version) {
+        return listMatches(ifNoneMatch, of(id, version), true);
+    }
+
+    // Whether an update may proceed under an If-Match header: absent, "*", or a list containing the current tag.
+    // Strong comparison (RFC 9110 13.1.1): weak tags never match.
+    public static boolean matchHits(String ifMatch, long id, Long version) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return true;
+        }
+        return listMatches(ifMatch, of(id, version), false);
+    }
+
+    private static boolean listMatches(String header, String current, boolean weak) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                tag = tag.substring(2);
+            }
+            if (tag.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
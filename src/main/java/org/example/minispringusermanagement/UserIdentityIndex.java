@@ -0,0 +1,141 @@
+package org.example.minispringusermanagement;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// In-memory set of every username and email, so a free name is claimed without touching the database. The
+// unique constraints on the users table stay authoritative. The set is per process and never reconciled, so
+// another instance's deletes and renames, or a reservation leaked by a failed request, leave stale entries:
+// a miss is trusted, but a hit is confirmed with the repository before the request is rejected. Values are
+// compared exactly as stored, like the constraints and findByUsername, so both agree on what a duplicate is.
+@Component
+@Lazy(false)  // Must be warm before the first request, even with lazy initialization (prod profile)
+public class UserIdentityIndex implements SmartInitializingSingleton {
+
+    public enum Conflict {
+        USERNAME("Username is already taken."),
+        EMAIL("Email is already registered.");
+
+        private final String message;
+
+        Conflict(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserIdentityIndex(UserRepository userRepository, PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Warm the index by streaming the table before the web server starts taking requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {
+                users.forEach(user -> {
+                    usernames.add(normalize(user.getUsername()));
+                    emails.add(normalize(user.getEmail()));
+                });
+            }
+        });
+    }
+
+    // Claims both values for a new user; returns the conflict, or null if both were free
+    public Conflict reserve(String username, String email) {
+        boolean usernameAdded = usernames.add(normalize(username));
+        if (!usernameAdded && userRepository.existsByUsername(username)) {
+            return Conflict.USERNAME;
+        }
+        if (!emails.add(normalize(email)) && userRepository.existsByEmail(email)) {
+            if (usernameAdded) {
+                usernames.remove(normalize(username));
+            }
+            return Conflict.EMAIL;
+        }
+        // A hit the repository doesn't confirm is stale, or another request's insert in flight; the request
+        // keeps the entry and the unique constraint settles any race
+        return null;
+    }
+
+    // Claims the new values of an updated user; unchanged values are already owned by that user
+    public Conflict reserveChange(String oldUsername, String oldEmail, String newUsername, String newEmail) {
+        boolean usernameChanged = !sameValue(oldUsername, newUsername);
+        boolean emailChanged = !sameValue(oldEmail, newEmail);
+        boolean usernameAdded = usernameChanged && usernames.add(normalize(newUsername));
+        if (usernameChanged && !usernameAdded && userRepository.existsByUsername(newUsername)) {
+            return Conflict.USERNAME;
+        }
+        if (emailChanged && !emails.add(normalize(newEmail)) && userRepository.existsByEmail(newEmail)) {
+            if (usernameAdded) {
+                usernames.remove(normalize(newUsername));
+            }
+            return Conflict.EMAIL;
+        }
+        return null;
+    }
+
+    // Releases values that are no longer in use (deleted user, replaced values, or a failed insert)
+    public void release(String username, String email) {
+        if (username != null) {
+            usernames.remove(normalize(username));
+        }
+        if (email != null) {
+            emails.remove(normalize(email));
+        }
+    }
+
+    // Releases values reserved for a failed write, except the one the database says is really taken
+    public void releaseUnlessTaken(String username, String email, Conflict conflict) {
+        release(conflict == Conflict.USERNAME ? null : username, conflict == Conflict.EMAIL ? null : email);
+    }
+
+    // Adds values already persisted by someone else (e.g. the default users)
+    public void add(String username, String email) {
+        usernames.add(normalize(username));
+        emails.add(normalize(email));
+    }
+
+    // Maps a unique constraint violation from the database to the conflicting column
+    public static Conflict conflictOf(Exception e) {
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage())
+                .toLowerCase(Locale.ROOT);
+        if (message.contains(User.EMAIL_UNIQUE_CONSTRAINT)) {
+            return Conflict.EMAIL;
+        }
+        if (message.contains(User.USERNAME_UNIQUE_CONSTRAINT)) {
+            return Conflict.USERNAME;
+        }
+        return null;
+    }
+
+    // Whether two usernames or emails count as the same identity
+    public static boolean sameValue(String a, String b) {
+        return normalize(a).equals(normalize(b));
+    }
+
+    // Case-sensitive and untrimmed, matching the unique constraints; null only stands for "no value"
+    private static String normalize(String value) {
+        return value == null ? "" : value;
+    }
+}
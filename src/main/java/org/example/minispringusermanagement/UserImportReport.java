@@ -0,0 +1,54 @@
+package org.example.minispringusermanagement;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk import: row counts plus the reason every rejected row was skipped
+@Getter
+public class UserImportReport {
+
+    private long processed;
+    private long imported;
+    private long failed;
+    private final List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+
+    // Only the first errors are kept, so a bad file can't grow the report without bound
+    @Getter(AccessLevel.NONE)
+    private final int maxErrors;
+
+    public UserImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void recordProcessed() {
+        processed++;
+    }
+
+    void recordImported(int count) {
+        imported += count;
+    }
+
+    void recordError(long line, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(line, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    @Getter
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Streams users from CSV or NDJSON, hashing passwords in parallel and inserting them in JDBC batches
+@Service
+public class UserImportService {
+
+    private final UserIdentityIndex userIdentityIndex;
+    private final UserChangeLog userChangeLog;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor hashPool;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public UserImportService(UserIdentityIndex userIdentityIndex,
+                             UserChangeLog userChangeLog,
+                             BoundedPasswordEncoder passwordEncoder,
+                             Validator validator,
+                             ObjectMapper objectMapper,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${users.import.hash-threads:0}") int hashThreads,
+                             @Value("${users.import.chunk-size:500}") int chunkSize,
+                             @Value("${users.import.max-errors:1000}") int maxErrors) {
+        this.userIdentityIndex = userIdentityIndex;
+        this.userChangeLog = userChangeLog;
+        // Hash on the import's own pool, not on the one reserved for logins and registrations
+        this.passwordEncoder = passwordEncoder.getDelegate();
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+
+        // Bounded pool: once the queue is full the importing thread hashes itself, which throttles reading
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chunkSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashPool.shutdown();
+    }
+
+    // CSV with a header row naming the username, email, password and optional role columns
+    public UserImportReport importCsv(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        UserImportReport report = new UserImportReport(maxErrors);
+
+        String header = reader.readLine();
+        if (header == null) {
+            return report;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = parseCsvLine(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("username", "email", "password")) {
+            if (!columns.containsKey(required)) {
+                report.recordError(1, "Missing column: " + required);
+                return report;
+            }
+        }
+
+        importLines(reader, 2, report, line -> {
+            List<String> fields = parseCsvLine(line);
+            ImportRecord record = new ImportRecord();
+            record.setUsername(field(fields, columns.get("username")));
+            record.setEmail(field(fields, columns.get("email")));
+            record.setPassword(field(fields, columns.get("password")));
+            record.setRole(field(fields, columns.get("role")));
+            return record;
+        });
+        return report;
+    }
+
+    // NDJSON with one user object per line
+    public UserImportReport importNdjson(InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        UserImportReport report = new UserImportReport(maxErrors);
+        importLines(reader, 1, report, line -> objectMapper.readValue(line, ImportRecord.class));
+        return report;
+    }
+
+    private void importLines(BufferedReader reader, long firstLine, UserImportReport report,
+                             RecordParser parser) throws IOException {
+        List<PendingUser> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = firstLine - 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            report.recordProcessed();
+
+            PendingUser pending;
+            try {
+                pending = toPendingUser(lineNumber, parser.parse(line));
+            } catch (Exception e) {
+                report.recordError(lineNumber, "Malformed record");
+                continue;
+            }
+
+            String violations = validate(pending.user);
+            if (violations != null) {
+                report.recordError(lineNumber, violations);
+                continue;
+            }
+
+            chunk.add(pending);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+    }
+
+    private PendingUser toPendingUser(long line, ImportRecord record) {
+        User user = new User();
+        user.setUsername(record.getUsername());
+        user.setEmail(record.getEmail());
+        user.setPassword(record.getPassword());
+        user.setRole(record.getRole() == null || record.getRole().isBlank()
+                ? Role.USER
+                : Role.valueOf(record.getRole().trim().toUpperCase(Locale.ROOT)));
+        return new PendingUser(line, user);
+    }
+
+    // Same messages as the register endpoint, joined the same way
+    private String validate(User user) {
+        Set<ConstraintViolation<User>> violations = validator.validate(user, Default.class, User.RawPassword.class, User.NewUser.class);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+    }
+
+    private void importChunk(List<PendingUser> chunk, UserImportReport report) {
+        // Duplicates against existing users and earlier chunks are caught by the index; duplicates within this
+        // chunk are checked here, since the index lets a hit through when the database doesn't confirm it
+        List<PendingUser> accepted = new ArrayList<>(chunk.size());
+        Set<String> chunkUsernames = new HashSet<>();
+        Set<String> chunkEmails = new HashSet<>();
+        for (PendingUser pending : chunk) {
+            String username = pending.user.getUsername();
+            String email = pending.user.getEmail();
+            UserIdentityIndex.Conflict conflict = chunkUsernames.contains(username) ? UserIdentityIndex.Conflict.USERNAME
+                    : chunkEmails.contains(email) ? UserIdentityIndex.Conflict.EMAIL
+                    : userIdentityIndex.reserve(username, email);
+            if (conflict != null) {
+                report.recordError(pending.line, conflict.getMessage());
+            } else {
+                accepted.add(pending);
+                chunkUsernames.add(username);
+                chunkEmails.add(email);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            hashPasswords(accepted);
+        } catch (RuntimeException e) {
+            accepted.forEach(pending -> userIdentityIndex.release(pending.user.getUsername(), pending.user.getEmail()));
+            throw e;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingUser pending : accepted) {
+                    entityManager.persist(pending.user);
+                }
+                entityManager.flush();
+            });
+            report.recordImported(accepted.size());
+            accepted.forEach(pending -> recordImported(pending.user));
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // The database disagrees with the index (e.g. another node inserted first); retry row by row
+            for (PendingUser pending : accepted) {
+                importSingle(pending, report);
+            }
+        }
+    }
+
+    private void importSingle(PendingUser pending, UserImportReport report) {
+        pending.user.setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.persist(pending.user);
+                entityManager.flush();
+            });
+            report.recordImported(1);
+            recordImported(pending.user);
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // Keep whichever value the database reports as taken; release the other one
+            UserIdentityIndex.Conflict conflict = UserIdentityIndex.conflictOf(e);
+            userIdentityIndex.release(conflict == UserIdentityIndex.Conflict.USERNAME ? null : pending.user.getUsername(),
+                    conflict == UserIdentityIndex.Conflict.EMAIL ? null : pending.user.getEmail());
+            report.recordError(pending.line, conflict != null ? conflict.getMessage() : "Could not save user.");
+        }
+    }
+
+    private void recordImported(User user) {
+        userChangeLog.record(UserChangeLog.Type.IMPORTED, user.getId(), user.getUsername(),
+                UserChangeLog.USERNAME | UserChangeLog.EMAIL | UserChangeLog.PASSWORD | UserChangeLog.ROLE);
+    }
+
+    private void hashPasswords(List<PendingUser> users) {
+        CompletableFuture<?>[] hashes = users.stream()
+                .map(pending -> CompletableFuture.runAsync(
+                        () -> pending.user.setPassword(passwordEncoder.encode(pending.user.getPassword())), hashPool))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(hashes).join();
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    // Minimal RFC 4180 line parser: comma separated, fields may be double-quoted with "" as an escaped quote
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    @FunctionalInterface
+    private interface RecordParser {
+        ImportRecord parse(String line) throws Exception;
+    }
+
+    private record PendingUser(long line, User user) {
+    }
+
+    @Getter
+    @Setter
+    public static class ImportRecord {
+        private String username;
+        private String email;
+        private String password;
+        private String role;
+    }
+}
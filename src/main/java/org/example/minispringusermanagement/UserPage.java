@@ -0,0 +1,17 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// One keyset page of users; nextCursor is the id to pass as 'cursor' for the next page, or null on the last page
+@Getter
+public class UserPage {
+    private final List<UserSummary> users;
+    private final Long nextCursor;
+
+    public UserPage(List<UserSummary> users, Long nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+}
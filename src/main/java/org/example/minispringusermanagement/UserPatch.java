@@ -0,0 +1,34 @@
+package org.example.minispringusermanagement;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+// Partial update of a user: fields left out of the request body (or null) keep their current value
+@Getter
+@Setter
+public class UserPatch {
+
+    @Size(min = 4, max = 20, message = "Username must be between 4 and 20 characters")
+    @Pattern(regexp = ".*\\S.*", message = "Username must not be blank")
+    private String username;
+
+    @Size(min = 8, message = "Password must have at least 8 characters")
+    @PasswordStrength
+    private String password;
+
+    @Email(message = "Email should be valid")
+    @Pattern(regexp = ".*\\S.*", message = "Email must not be blank")
+    private String email;
+
+    // A patch replacing every field, as PUT does
+    public static UserPatch of(User user) {
+        UserPatch patch = new UserPatch();
+        patch.setUsername(user.getUsername());
+        patch.setPassword(user.getPassword());
+        patch.setEmail(user.getEmail());
+        return patch;
+    }
+}
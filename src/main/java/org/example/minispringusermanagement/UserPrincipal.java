@@ -0,0 +1,49 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Authenticated user as seen by authorization checks. Carries the id and role so @PreAuthorize rules
+// can decide without reading the users table; built from the JWT claims on every authenticated request.
+@Getter
+public class UserPrincipal implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String username;
+    private String password;
+    private final Role role;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String username, String password, Role role) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    // Principal for an already verified token; there is no password to check
+    public static UserPrincipal fromToken(Long id, String username, Role role) {
+        return new UserPrincipal(id, username, null, role);
+    }
+
+    public UserPrincipal copy() {
+        return new UserPrincipal(id, username, password, role);
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
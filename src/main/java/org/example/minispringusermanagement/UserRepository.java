@@ -1,7 +1,19 @@
 package org.example.minispringusermanagement;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
@@ -16,4 +28,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     // Optional method to find user by email
     Optional<User> findByEmail(String email);
+
+    // Replaces a password hash with a rehash of the same password, unless the password changed meanwhile.
+    // Not a profile change, so the version (and the user's ETag) stays the same.
+    @Modifying
+    @Transactional
+    @Query("update User u set u.password = :newHash where u.id = :id and u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    // Only the version of a user, for conditional requests that don't need the row
+    @Query("select coalesce(u.version, 0L) from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Rows created before the version column existed have no version; optimistic locking needs one
+    @Modifying
+    @Transactional
+    @Query("update User u set u.version = 0 where u.version is null")
+    int backfillVersions();
+
+    // Keyset page: the next 'limit' users with an id greater than 'afterId', without password hashes
+    @Query("select new org.example.minispringusermanagement.UserSummary(u.id, u.username, u.email, u.role) " +
+            "from User u where u.id > :afterId order by u.id")
+    List<UserSummary> findSummariesAfter(@Param("afterId") long afterId, Limit limit);
+
+    // Streams every user as a summary; must be consumed inside a transaction and closed afterwards
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select new org.example.minispringusermanagement.UserSummary(u.id, u.username, u.email, u.role) " +
+            "from User u order by u.id")
+    Stream<UserSummary> streamAllSummaries();
 }
@@ -0,0 +1,455 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory trigram index over usernames and emails, so admins can search users by substring without a
+// LIKE '%q%' table scan. Every user gets a dense int document number, reused after the user is removed;
+// each trigram maps to a sorted int[] posting list of the documents containing it. A query intersects the posting lists of its trigrams,
+// starting with the shortest, then checks the few remaining candidates against the actual values.
+//
+// Values are prefixed with a start marker before splitting, so "^ab" is indexed for "abc" and two-character
+// queries can still find prefixes. Built at startup from the table and kept current by UserSearchIndexListener.
+@Component
+@Lazy(false)  // Must be warm before the first request, even with lazy initialization (prod profile)
+public class UserSearchIndex implements SmartInitializingSingleton {
+
+    public static final int MIN_QUERY_LENGTH = 2;
+
+    private static final char START = '\u0002';
+
+    // Ranks, best first; packed with the username length and the document into one long so matches sort as primitives
+    private static final int EXACT = 0;
+    private static final int USERNAME_PREFIX = 1;
+    private static final int EMAIL_PREFIX = 2;
+    private static final int USERNAME_SUBSTRING = 3;
+    private static final int EMAIL_SUBSTRING = 4;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Trigram (three 16-bit chars packed into a long) -> documents containing it
+    private final LongMap<Postings> postings = new LongMap<>();
+    // User id -> document number
+    private final LongMap<Integer> documents = new LongMap<>();
+    // Document number -> user; slots of removed users are null until their number is handed out again
+    private UserSummary[] users = new UserSummary[1024];
+    private int nextDocument;
+    // Stack of document numbers freed by removed users, so users[] stays as large as the peak user count
+    private int[] freeDocuments = new int[16];
+    private int freeCount;
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public UserSearchIndex(UserRepository userRepository, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        Gauge.builder("user.search.index.users", this, UserSearchIndex::size)
+                .description("Users in the in-memory search index")
+                .register(meterRegistry);
+        Gauge.builder("user.search.index.trigrams", this, UserSearchIndex::trigrams)
+                .description("Distinct trigrams in the in-memory search index")
+                .register(meterRegistry);
+    }
+
+    // Build the index by streaming the table before the web server starts taking requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<UserSummary> all = userRepository.streamAllSummaries()) {
+                all.forEach(this::put);
+            }
+        });
+    }
+
+    // Adds a user, or replaces the indexed values of one already present
+    public void put(UserSummary user) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = documents.get(user.getId());
+            if (existing != null) {
+                UserSummary previous = users[existing];
+                if (previous.getUsername().equals(user.getUsername()) && previous.getEmail().equals(user.getEmail())) {
+                    users[existing] = user;  // Only the role changed
+                    return;
+                }
+                removeDocument(existing);
+            }
+            int document = freeCount > 0 ? freeDocuments[--freeCount] : nextDocument++;
+            if (document == users.length) {
+                users = Arrays.copyOf(users, users.length * 2);
+            }
+            users[document] = user;
+            documents.put(user.getId(), document);
+            for (long trigram : trigramsOf(user)) {
+                Postings list = postings.get(trigram);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(trigram, list);
+                }
+                list.add(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId) {
+        lock.writeLock().lock();
+        try {
+            Integer document = documents.remove(userId);
+            if (document != null) {
+                removeDocument(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Users whose username or email contains the query (case-insensitive), best matches first: exact match,
+    // username prefix, email prefix, username substring, email substring; shorter usernames first within a rank.
+    // Queries of two characters match prefixes only.
+    public UserSearchPage search(String query, int offset, int limit) {
+        String q = query.trim().toLowerCase(Locale.ROOT);
+        long[] trigrams = q.length() < 3 ? new long[]{trigram(START, q.charAt(0), q.charAt(1))} : trigramsOf(q);
+
+        lock.readLock().lock();
+        try {
+            // Intersect from the shortest posting list; any trigram with no postings means no match
+            Postings[] lists = new Postings[trigrams.length];
+            for (int i = 0; i < trigrams.length; i++) {
+                lists[i] = postings.get(trigrams[i]);
+                if (lists[i] == null) {
+                    return new UserSearchPage(List.of(), 0, null);
+                }
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            int[] candidates = Arrays.copyOf(lists[0].documents, lists[0].size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.length && count > 0; i++) {
+                count = lists[i].retainAll(candidates, count);
+            }
+
+            // Trigrams can all be present without being adjacent, so confirm each candidate against its values.
+            // Only the best offset + limit matches are kept, in a max-heap, so broad queries don't sort every match.
+            int wanted = (int) Math.min((long) offset + limit, count);
+            long[] best = new long[wanted];
+            int kept = 0;
+            int matches = 0;
+            for (int i = 0; i < count; i++) {
+                int rank = rank(users[candidates[i]], q);
+                if (rank < 0) {
+                    continue;
+                }
+                matches++;
+                int length = Math.min(users[candidates[i]].getUsername().length(), 255);
+                long key = (long) rank << 40 | (long) length << 32 | candidates[i];
+                if (kept < wanted) {
+                    best[kept] = key;
+                    siftUp(best, kept++);
+                } else if (wanted > 0 && key < best[0]) {
+                    best[0] = key;
+                    siftDown(best, kept);
+                }
+            }
+            Arrays.sort(best, 0, kept);
+
+            int from = Math.min(offset, kept);
+            List<UserSummary> page = new ArrayList<>(kept - from);
+            for (int i = from; i < kept; i++) {
+                page.add(users[(int) best[i]]);
+            }
+            return new UserSearchPage(page, matches, kept < matches ? kept : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int trigrams() {
+        lock.readLock().lock();
+        try {
+            return postings.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeDocument(int document) {
+        for (long trigram : trigramsOf(users[document])) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(document) && list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        users[document] = null;
+        if (freeCount == freeDocuments.length) {
+            freeDocuments = Arrays.copyOf(freeDocuments, freeCount * 2);
+        }
+        freeDocuments[freeCount++] = document;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        long key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= key) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        long key = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[child] <= key) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    // -1 if neither value contains the (lowercased) query
+    private static int rank(UserSummary user, String q) {
+        String username = user.getUsername();
+        String email = user.getEmail();
+        if (username.equalsIgnoreCase(q) || email.equalsIgnoreCase(q)) {
+            return EXACT;
+        }
+        if (username.regionMatches(true, 0, q, 0, q.length())) {
+            return USERNAME_PREFIX;
+        }
+        if (email.regionMatches(true, 0, q, 0, q.length())) {
+            return EMAIL_PREFIX;
+        }
+        if (q.length() < 3) {
+            return -1;
+        }
+        if (containsIgnoreCase(username, q)) {
+            return USERNAME_SUBSTRING;
+        }
+        return containsIgnoreCase(email, q) ? EMAIL_SUBSTRING : -1;
+    }
+
+    private static boolean containsIgnoreCase(String value, String q) {
+        for (int i = 0; i <= value.length() - q.length(); i++) {
+            if (value.regionMatches(true, i, q, 0, q.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Distinct trigrams of both values, each with the start marker in front
+    private static long[] trigramsOf(UserSummary user) {
+        long[] username = trigramsOf(START + user.getUsername().toLowerCase(Locale.ROOT));
+        long[] email = trigramsOf(START + user.getEmail().toLowerCase(Locale.ROOT));
+        long[] all = Arrays.copyOf(username, username.length + email.length);
+        System.arraycopy(email, 0, all, username.length, email.length);
+        return distinct(all);
+    }
+
+    private static long[] trigramsOf(String value) {
+        if (value.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[value.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = trigram(value.charAt(i), value.charAt(i + 1), value.charAt(i + 2));
+        }
+        return distinct(trigrams);
+    }
+
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[count++] = values[i];
+            }
+        }
+        return count == values.length ? values : Arrays.copyOf(values, count);
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return (long) a << 32 | (long) b << 16 | c;
+    }
+
+    // Sorted, growable array of document numbers. Adding is an append for a new highest document number and a
+    // binary-search insert for a reused one.
+    private static final class Postings {
+        int[] documents = new int[4];
+        int size;
+
+        void add(int document) {
+            int index = size == 0 || documents[size - 1] < document ? size : Arrays.binarySearch(documents, 0, size, document);
+            if (index >= 0 && index < size) {
+                return;  // Already present
+            }
+            int insertAt = index < 0 ? -index - 1 : index;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size + (size >> 1));
+            }
+            System.arraycopy(documents, insertAt, documents, insertAt + 1, size - insertAt);
+            documents[insertAt] = document;
+            size++;
+        }
+
+        boolean remove(int document) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+            size--;
+            if (size < documents.length / 4 && documents.length > 4) {
+                documents = Arrays.copyOf(documents, Math.max(4, documents.length / 2));
+            }
+            return true;
+        }
+
+        // Keeps the first 'count' candidates (sorted) that are also in this list; returns how many remain.
+        // Gallops through this list, so a short candidate list against a long posting list skips most of it.
+        int retainAll(int[] candidates, int count) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < size; i++) {
+                int candidate = candidates[i];
+                if (documents[j] < candidate) {
+                    int low = j;
+                    int step = 1;
+                    while (low + step < size && documents[low + step] < candidate) {
+                        low += step;
+                        step <<= 1;
+                    }
+                    int found = Arrays.binarySearch(documents, low + 1, Math.min(low + step + 1, size), candidate);
+                    j = found >= 0 ? found : -found - 1;
+                }
+                if (j < size && documents[j] == candidate) {
+                    candidates[kept++] = candidate;
+                }
+            }
+            return kept;
+        }
+    }
+
+    // Open-addressing hash map with primitive long keys (linear probing, backward-shift deletion), so trigram
+    // and user id lookups neither box the key nor chase a chain of entry nodes. Values are never null.
+    private static final class LongMap<V> {
+        long[] keys = new long[16];
+        Object[] values = new Object[16];
+        int size;
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return (V) values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, V value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size > keys.length * 3 / 4) {
+                resize(keys.length * 2);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            Object removed = values[i];
+            if (removed == null) {
+                return null;
+            }
+            // Shift later entries of the probe run back, so lookups never stop at the hole early
+            int hole = i;
+            for (int j = (hole + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = null;
+            size--;
+            return (V) removed;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(oldKeys[i], mask);
+                    while (values[j] != null) {
+                        j = (j + 1) & mask;
+                    }
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.minispringusermanagement;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// JPA entity listener keeping UserSearchIndex in step with the users table. Changes are applied after the
+// transaction commits, so a rolled-back insert or update never shows up in search results.
+// Created by Hibernate through Spring; the index is looked up lazily since it depends on the repository.
+public class UserSearchIndexListener {
+
+    private final ObjectProvider<UserSearchIndex> searchIndex;
+
+    public UserSearchIndexListener(ObjectProvider<UserSearchIndex> searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(User user) {
+        // Copy the values now; the entity may change again before the commit
+        UserSummary summary = new UserSummary(user.getId(), user.getUsername(), user.getEmail(), user.getRole());
+        afterCommit(() -> searchIndex.getObject().put(summary));
+    }
+
+    @PostRemove
+    public void removed(User user) {
+        long id = user.getId();
+        afterCommit(() -> searchIndex.getObject().remove(id));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
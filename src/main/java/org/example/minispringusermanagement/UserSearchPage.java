@@ -0,0 +1,19 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+import java.util.List;
+
+// One page of ranked search results; nextOffset is the offset of the next page, or null on the last page
+@Getter
+public class UserSearchPage {
+    private final List<UserSummary> users;
+    private final int total;
+    private final Integer nextOffset;
+
+    public UserSearchPage(List<UserSummary> users, int total, Integer nextOffset) {
+        this.users = users;
+        this.total = total;
+        this.nextOffset = nextOffset;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+// Read-only projection of a user without the password hash, built directly by JPQL constructor expressions
+@Getter
+public class UserSummary {
+    private final Long id;
+    private final String username;
+    private final String email;
+    private final Role role;
+
+    public UserSummary(Long id, String username, String email, Role role) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.role = role;
+    }
+}
@@ -0,0 +1,179 @@
+package org.example.minispringusermanagement;
+
+import org.example.minispringusermanagement.util.TokenDenylist;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Applies full (PUT) and partial (PATCH) updates to a user, and deletes users.
+//
+// The user is read and written in one transaction, so it stays managed: one SELECT, then an UPDATE of only the
+// changed columns with a version check, instead of a read followed by merge()'s second SELECT and a full-row
+// write. A new password is hashed before the transaction starts, so no connection is held during BCrypt, and
+// an unchanged password is never re-hashed.
+@Service
+public class UserUpdateService {
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final UserIdentityIndex userIdentityIndex;
+    private final JpaUserDetailsService userDetailsService;
+    private final TokenDenylist tokenDenylist;
+    private final RefreshTokenService refreshTokenService;
+    private final UserChangeLog userChangeLog;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserUpdateService(UserRepository userRepository,
+                             PasswordEncoder passwordEncoder,
+                             UserIdentityIndex userIdentityIndex,
+                             JpaUserDetailsService userDetailsService,
+                             TokenDenylist tokenDenylist,
+                             RefreshTokenService refreshTokenService,
+                             UserChangeLog userChangeLog,
+                             PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.userIdentityIndex = userIdentityIndex;
+        this.userDetailsService = userDetailsService;
+        this.tokenDenylist = tokenDenylist;
+        this.refreshTokenService = refreshTokenService;
+        this.userChangeLog = userChangeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Applies the non-null fields of the patch if the user still matches the If-Match header (may be null).
+    // Returns the conflict if the new username or email is taken, otherwise null.
+    public UserIdentityIndex.Conflict update(Long id, UserPatch patch, String ifMatch) {
+        String encodedPassword = patch.getPassword() == null ? null : passwordEncoder.encode(patch.getPassword());
+
+        Update update = transactionTemplate.execute(status -> {
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (!UserETag.matchHits(ifMatch, id, user.getVersion())) {
+                throw new UserVersionMismatchException(UserETag.versionOf(user.getVersion()));
+            }
+
+            // Claim the new username/email in memory before touching the database
+            String previousUsername = user.getUsername();
+            String previousEmail = user.getEmail();
+            String username = patch.getUsername() == null ? previousUsername : patch.getUsername();
+            String email = patch.getEmail() == null ? previousEmail : patch.getEmail();
+            UserIdentityIndex.Conflict conflict = userIdentityIndex.reserveChange(previousUsername, previousEmail,
+                    username, email);
+            if (conflict != null) {
+                return new Update(conflict);
+            }
+            String newUsername = changed(previousUsername, username);
+            String newEmail = changed(previousEmail, email);
+
+            try {
+                // Setting an unchanged value leaves the column out of the UPDATE
+                user.setUsername(username);
+                user.setEmail(email);
+                if (encodedPassword != null) {
+                    user.setPassword(encodedPassword);
+                }
+                userRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                status.setRollbackOnly();
+                conflict = UserIdentityIndex.conflictOf(e);
+                userIdentityIndex.releaseUnlessTaken(newUsername, newEmail, conflict);
+                if (conflict == null) {
+                    throw e;
+                }
+                return new Update(conflict);
+            } catch (RuntimeException e) {
+                userIdentityIndex.release(newUsername, newEmail);
+                throw e;
+            }
+            return new Update(previousUsername, previousEmail, newUsername, newEmail, user.getUsername());
+        });
+
+        if (update.conflict != null) {
+            return update.conflict;
+        }
+        userIdentityIndex.release(update.newUsername == null ? null : update.previousUsername,
+                update.newEmail == null ? null : update.previousEmail);
+
+        // Invalidate cached credentials under both the old and the new username
+        userDetailsService.evict(update.previousUsername);
+        if (patch.getUsername() != null) {
+            userDetailsService.evict(patch.getUsername());
+        }
+
+        // Tokens carry the username and were issued against the old password; make the user log in again
+        if (encodedPassword != null || update.newUsername != null) {
+            revokeTokens(id);
+        }
+
+        int changedFields = (update.newUsername != null ? UserChangeLog.USERNAME : 0)
+                | (update.newEmail != null ? UserChangeLog.EMAIL : 0)
+                | (encodedPassword != null ? UserChangeLog.PASSWORD : 0);
+        if (changedFields != 0) {
+            userChangeLog.record(UserChangeLog.Type.UPDATED, id, update.username, changedFields);
+        }
+        return null;
+    }
+
+    // Loads and removes the user in one transaction, so delete() finds the entity already managed: one SELECT
+    // and one DELETE. Refresh tokens go with the row (ON DELETE CASCADE); access tokens are denied until they
+    // expire. Unknown ids are ignored.
+    public void delete(Long id) {
+        User deleted = transactionTemplate.execute(status -> {
+            User user = userRepository.findById(id).orElse(null);
+            if (user != null) {
+                userRepository.delete(user);
+            }
+            return user;
+        });
+        if (deleted == null) {
+            return;
+        }
+        userDetailsService.evict(deleted.getUsername());
+        userIdentityIndex.release(deleted.getUsername(), deleted.getEmail());
+        tokenDenylist.revokeUser(id);
+        userChangeLog.record(UserChangeLog.Type.DELETED, id, deleted.getUsername(), 0);
+    }
+
+    // Logout everywhere: access tokens are denied until they expire, refresh tokens are deleted
+    public void revokeTokens(Long id) {
+        tokenDenylist.revokeUser(id);
+        refreshTokenService.revokeAll(id);
+    }
+
+    // The new value if the index considers it different from the old one, otherwise null
+    private static String changed(String oldValue, String newValue) {
+        return UserIdentityIndex.sameValue(oldValue, newValue) ? null : newValue;
+    }
+
+    // What an update did, carried out of the transaction
+    private static final class Update {
+        final UserIdentityIndex.Conflict conflict;
+        final String previousUsername;
+        final String previousEmail;
+        final String newUsername;
+        final String newEmail;
+        // The username as saved
+        final String username;
+
+        Update(UserIdentityIndex.Conflict conflict) {
+            this(conflict, null, null, null, null, null);
+        }
+
+        Update(String previousUsername, String previousEmail, String newUsername, String newEmail, String username) {
+            this(null, previousUsername, previousEmail, newUsername, newEmail, username);
+        }
+
+        private Update(UserIdentityIndex.Conflict conflict, String previousUsername, String previousEmail,
+                       String newUsername, String newEmail, String username) {
+            this.conflict = conflict;
+            this.previousUsername = previousUsername;
+            this.previousEmail = previousEmail;
+            this.newUsername = newUsername;
+            this.newEmail = newEmail;
+            this.username = username;
+        }
+    }
+}
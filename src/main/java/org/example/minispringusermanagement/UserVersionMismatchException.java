@@ -0,0 +1,15 @@
+package org.example.minispringusermanagement;
+
+import lombok.Getter;
+
+// Thrown when an update's If-Match header doesn't contain the user's current tag; mapped to 412
+@Getter
+public class UserVersionMismatchException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public UserVersionMismatchException(long currentVersion) {
+        super("User has been modified since it was read");
+        this.currentVersion = currentVersion;
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.minispringusermanagement.filters;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.minispringusermanagement.AccessLog;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Times every request around the security filter chain and hands the result to the asynchronous access log.
+// Later stages report who the caller was and how authentication went through request attributes.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 2) // Outside the rate limiter, so throttled requests are logged too
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    public static final String USERNAME_ATTRIBUTE = AccessLogFilter.class.getName() + ".username";
+    public static final String AUTH_OUTCOME_ATTRIBUTE = AccessLogFilter.class.getName() + ".authOutcome";
+
+    public enum AuthOutcome {
+        JWT_SUCCESS("jwt:success", false),
+        JWT_EXPIRED("jwt:expired", true),
+        JWT_INVALID("jwt:invalid", true),
+        JWT_REVOKED("jwt:revoked", true),
+        JWT_UNKNOWN_USER("jwt:unknown_user", true),
+        PASSWORD_SUCCESS("password:success", false),
+        PASSWORD_FAILURE("password:failure", true);
+
+        private final String label;
+        private final boolean failure;
+
+        AuthOutcome(String label, boolean failure) {
+            this.label = label;
+            this.failure = failure;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public boolean isFailure() {
+            return failure;
+        }
+    }
+
+    private final AccessLog accessLog;
+
+    public AccessLogFilter(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain)
+            throws ServletException, IOException {
+        long startMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            accessLog.record(startMillis, System.nanoTime() - start, request.getMethod(), request.getRequestURI(),
+                    request.getQueryString(), response.getStatus(), request.getRemoteAddr(),
+                    (String) request.getAttribute(USERNAME_ATTRIBUTE),
+                    (AuthOutcome) request.getAttribute(AUTH_OUTCOME_ATTRIBUTE));
+        }
+    }
+}
@@ -4,31 +4,68 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.Setter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.minispringusermanagement.AuthenticationMetrics;
+import org.example.minispringusermanagement.Role;
+import org.example.minispringusermanagement.UserPrincipal;
 import org.example.minispringusermanagement.util.JwtUtil;
+import org.example.minispringusermanagement.util.TokenDenylist;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    // Request attribute holding the verified claims, so later stages of the request don't parse the token again
+    public static final String JWT_CLAIMS_ATTRIBUTE = JwtRequestFilter.class.getName() + ".claims";
+
     private final JwtUtil jwtUtil;
+    private final UserDetailsService userDetailsService;
+    private final TokenDenylist tokenDenylist;
 
-    @Setter
-    private UserDetailsService userDetailsService;
+    // Per-stage timers and outcome counters, created once so the request path only records
+    private final Timer verificationValid;
+    private final Timer verificationExpired;
+    private final Timer verificationInvalid;
+    private final Timer userLookupFound;
+    private final Timer userLookupMissing;
+    private final Counter authenticated;
+    private final Counter expired;
+    private final Counter invalid;
+    private final Counter unknownUser;
+    private final Counter revoked;
 
-    // Constructor-based injection for JwtUtil
-    public JwtRequestFilter(JwtUtil jwtUtil) {
+    // Constructor-based injection for JwtUtil, the database-backed UserDetailsService and the revocation denylist
+    public JwtRequestFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService, TokenDenylist tokenDenylist,
+                            MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenDenylist = tokenDenylist;
+
+        this.verificationValid = verificationTimer(meterRegistry, "valid");
+        this.verificationExpired = verificationTimer(meterRegistry, "expired");
+        this.verificationInvalid = verificationTimer(meterRegistry, "invalid");
+        this.userLookupFound = userLookupTimer(meterRegistry, "found");
+        this.userLookupMissing = userLookupTimer(meterRegistry, "not_found");
+        this.authenticated = AuthenticationMetrics.attempts(meterRegistry, "jwt", "success");
+        this.expired = AuthenticationMetrics.attempts(meterRegistry, "jwt", "expired");
+        this.invalid = AuthenticationMetrics.attempts(meterRegistry, "jwt", "invalid");
+        this.unknownUser = AuthenticationMetrics.attempts(meterRegistry, "jwt", "unknown_user");
+        this.revoked = AuthenticationMetrics.attempts(meterRegistry, "jwt", "revoked");
     }
 
     @Override
@@ -40,42 +77,106 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         String username = null;
         String jwt = null;
+        Claims claims = null;
 
-        // Log the incoming request and authorization header
-        logger.info("Incoming request to: " + request.getRequestURI());
-        logger.info("Authorization Header: " + authorizationHeader);
-
+        // Outcomes are reported to the access log through request attributes; nothing is logged here,
+        // and the token itself never leaves this method
         // Check for Bearer token in the authorization header
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
+            long start = System.nanoTime();
             try {
-                username = jwtUtil.extractUsername(jwt);
-                logger.info("JWT Token extracted for user: " + username);
+                claims = jwtUtil.extractAllClaims(jwt);
+                verificationValid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (tokenDenylist.isRevoked(claims)) {
+                    revoked.increment();
+                    report(request, claims.getSubject(), AccessLogFilter.AuthOutcome.JWT_REVOKED);
+                } else {
+                    username = claims.getSubject();
+                    request.setAttribute(JWT_CLAIMS_ATTRIBUTE, claims);
+                }
             } catch (ExpiredJwtException e) {
-                logger.warn("JWT Token has expired");
+                verificationExpired.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                expired.increment();
+                report(request, e.getClaims().getSubject(), AccessLogFilter.AuthOutcome.JWT_EXPIRED);
             } catch (Exception e) {
-                logger.error("Error extracting username from JWT token", e);
+                verificationInvalid.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                invalid.increment();
+                report(request, null, AccessLogFilter.AuthOutcome.JWT_INVALID);
             }
         }
 
         // If a valid username is found and the user is not already authenticated
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            // Tokens carry the id and role, so the principal comes from the claims; tokens without a role
+            // fall back to loading the user (tokens without an id were already rejected by the denylist)
+            UserDetails userDetails = principalFromClaims(claims);
+            if (userDetails == null) {
+                userDetails = loadUser(username);
+            }
 
             // Validate the JWT token
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                logger.info("JWT Token is valid. Authenticating user: " + username);
+            if (userDetails != null && jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 // Set the authentication in the security context
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                authenticated.increment();
+                report(request, username, AccessLogFilter.AuthOutcome.JWT_SUCCESS);
+            } else if (userDetails == null) {
+                unknownUser.increment();
+                report(request, username, AccessLogFilter.AuthOutcome.JWT_UNKNOWN_USER);
             } else {
-                logger.warn("Invalid JWT Token for user: " + username);
+                invalid.increment();
+                report(request, username, AccessLogFilter.AuthOutcome.JWT_INVALID);
             }
         }
 
         chain.doFilter(request, response);
     }
+
+    // A token may outlive its user; treat a deleted user as unauthenticated instead of failing the request
+    private UserDetails loadUser(String username) {
+        long start = System.nanoTime();
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            userLookupFound.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return userDetails;
+        } catch (UsernameNotFoundException e) {
+            userLookupMissing.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return null;
+        }
+    }
+
+    private static void report(HttpServletRequest request, String username, AccessLogFilter.AuthOutcome outcome) {
+        request.setAttribute(AccessLogFilter.USERNAME_ATTRIBUTE, username);
+        request.setAttribute(AccessLogFilter.AUTH_OUTCOME_ATTRIBUTE, outcome);
+    }
+
+    private static UserPrincipal principalFromClaims(Claims claims) {
+        Number id = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+        String role = claims.get(JwtUtil.ROLE_CLAIM, String.class);
+        if (id == null || role == null) {
+            return null;
+        }
+        return UserPrincipal.fromToken(id.longValue(), claims.getSubject(), Role.valueOf(role));
+    }
+
+    private static Timer verificationTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("auth.jwt.verification")
+                .description("Time spent parsing and verifying the bearer token")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Timer userLookupTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("auth.user.lookup")
+                .description("Time spent loading the token's user")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
 }
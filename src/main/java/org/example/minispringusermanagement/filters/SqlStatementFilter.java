@@ -0,0 +1,109 @@
+package org.example.minispringusermanagement.filters;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.minispringusermanagement.SqlStatementListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Counts the SQL statements and JDBC time of each request, including authentication in the security chain.
+// Records them per endpoint and reports them in the X-SQL-Statements and Server-Timing response headers, which
+// are written when the response commits (statements run while streaming a body are only in the metrics).
+// Off in the prod profile.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 3) // Outermost, so everything the request triggers is counted
+@ConditionalOnProperty(name = "sql-statements.enabled", matchIfMissing = true)
+public class SqlStatementFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String TIMING_HEADER = "Server-Timing";
+
+    private final MeterRegistry meterRegistry;
+    // Meters per method and URI pattern, created on first use so the request path only records
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    public SqlStatementFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementListener.Counts counts = SqlStatementListener.start();
+        CountingResponse countingResponse = new CountingResponse(response, counts);
+        try {
+            chain.doFilter(request, countingResponse);
+        } finally {
+            SqlStatementListener.stop();
+            countingResponse.writeHeaders();
+
+            // Unmatched requests (404s, rejected before MVC) share one tag, so paths can't inflate the meter count
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            Meters endpoint = meters.computeIfAbsent(request.getMethod() + ' ' + uri,
+                    key -> new Meters(meterRegistry, request.getMethod(), uri));
+            endpoint.statements.record(counts.getStatements());
+            endpoint.time.record(counts.getNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class Meters {
+        final DistributionSummary statements;
+        final Timer time;
+
+        Meters(MeterRegistry registry, String method, String uri) {
+            this.statements = DistributionSummary.builder("http.server.requests.sql.statements")
+                    .description("SQL statements executed per request")
+                    .tags("method", method, "uri", uri)
+                    .register(registry);
+            this.time = Timer.builder("http.server.requests.sql.time")
+                    .description("Time spent executing SQL statements per request")
+                    .tags("method", method, "uri", uri)
+                    .register(registry);
+        }
+    }
+
+    // Adds the headers just before the response commits, after the handler has done its queries
+    private static final class CountingResponse extends OnCommittedResponseWrapper {
+        private final SqlStatementListener.Counts counts;
+        private boolean headersWritten;
+
+        CountingResponse(HttpServletResponse response, SqlStatementListener.Counts counts) {
+            super(response);
+            this.counts = counts;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeaders();
+        }
+
+        void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(counts.getStatements()));
+            setHeader(TIMING_HEADER, String.format(Locale.ROOT, "sql;dur=%.3f", counts.getNanos() / 1_000_000.0));
+        }
+    }
+}
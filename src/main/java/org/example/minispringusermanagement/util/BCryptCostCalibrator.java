@@ -0,0 +1,70 @@
+package org.example.minispringusermanagement.util;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// Picks the BCrypt cost for this host: times a few hashes at a cheap probe cost, then takes the highest cost
+// whose projected latency (each step doubles the work) stays within the target. Also builds the encoder that
+// stores hashes as "{bcrypt-<cost>}$2a$<cost>$...", so hashes made at another cost are recognized by their id.
+public final class BCryptCostCalibrator {
+
+    public static final int MIN_COST = 4;
+    public static final int MAX_COST = 31;
+
+    private static final String ID_PREFIX = "bcrypt-";
+    private static final int PROBE_COST = 6;
+    private static final int PROBE_ROUNDS = 5;
+
+    private BCryptCostCalibrator() {
+    }
+
+    // The highest cost in [minCost, maxCost] whose hash is expected to take at most 'target' on this host
+    public static int calibrate(Duration target, int minCost, int maxCost) {
+        // Warm up, then keep the fastest probe: slower rounds measure interference, not the hash
+        String salt = BCrypt.gensalt(PROBE_COST);
+        BCrypt.hashpw("calibration", salt);
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        int cost = minCost;
+        while (cost < maxCost && projectedNanos(fastest, cost + 1) <= target.toNanos()) {
+            cost++;
+        }
+        return cost;
+    }
+
+    // Expected time of one hash at 'cost', from the probe's time
+    public static long projectedNanos(long probeNanos, int cost) {
+        int shift = cost - PROBE_COST;
+        return shift >= 0 ? probeNanos << shift : probeNanos >> -shift;
+    }
+
+    // Encodes at 'cost' and verifies any BCrypt hash: versioned ids, Spring's plain "{bcrypt}", and hashes
+    // stored without an id before versioning. upgradeEncoding() is true for every hash not made at 'cost'.
+    public static PasswordEncoder encoder(int cost) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        for (int c = MIN_COST; c <= MAX_COST; c++) {
+            encoders.put(id(c), new BCryptPasswordEncoder(c));
+        }
+        BCryptPasswordEncoder anyCost = new BCryptPasswordEncoder();
+        encoders.put("bcrypt", anyCost);
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(id(cost), encoders);
+        encoder.setDefaultPasswordEncoderForMatches(anyCost);
+        return encoder;
+    }
+
+    public static String id(int cost) {
+        return ID_PREFIX + cost;
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.minispringusermanagement.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only Bloom filter of breached passwords, memory-mapped from a file built by BreachedPasswordFilterCompiler.
+// The bit array stays off-heap in the page cache; a lookup hashes the password twice and probes k bits.
+//
+// File layout (big-endian): int magic, int hash count k, long bit count m, then ceil(m / 64) longs of bits.
+public final class BreachedPasswordFilter {
+
+    static final int MAGIC = 0x42504631; // "BPF1"
+    static final int HEADER_BYTES = 16;
+
+    private static final long SEED_1 = 0xcbf29ce484222325L;
+    private static final long SEED_2 = 0x84222325cbf29ce4L;
+
+    private final ByteBuffer bits;
+    private final int hashCount;
+    private final long bitCount;
+
+    private BreachedPasswordFilter(ByteBuffer bits, int hashCount, long bitCount) {
+        this.bits = bits;
+        this.hashCount = hashCount;
+        this.bitCount = bitCount;
+    }
+
+    public static BreachedPasswordFilter open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Breached password filter larger than 2 GB: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a breached password filter: " + file);
+            }
+            int hashCount = buffer.getInt(4);
+            long bitCount = buffer.getLong(8);
+            if (hashCount <= 0 || bitCount <= 0 || HEADER_BYTES + wordCount(bitCount) * Long.BYTES > buffer.capacity()) {
+                throw new IOException("Corrupt breached password filter: " + file);
+            }
+            return new BreachedPasswordFilter(buffer, hashCount, bitCount);
+        }
+    }
+
+    // False positives are possible at the rate the filter was built for; false negatives are not
+    public boolean mightContain(CharSequence password) {
+        long h1 = hash(password, SEED_1);
+        long h2 = hash(password, SEED_2);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            long word = bits.getLong(HEADER_BYTES + (int) (bit >>> 6) * Long.BYTES);
+            if ((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long wordCount(long bitCount) {
+        return (bitCount + 63) >>> 6;
+    }
+
+    // FNV-1a over the UTF-16 code units followed by the MurmurHash3 finalizer; no allocation
+    static long hash(CharSequence value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // Bit positions for one password, shared with the compiler so both sides agree on the layout
+    static void setBits(long[] words, long bitCount, int hashCount, CharSequence password) {
+        long h1 = hash(password, SEED_1);
+        long h2 = hash(password, SEED_2);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.minispringusermanagement.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Offline tool that compiles a plain-text breached password list (one password per line) into the
+// memory-mappable Bloom filter file read by BreachedPasswordFilter.
+//
+// Usage: java -cp <app classpath> org.example.minispringusermanagement.util.BreachedPasswordFilterCompiler
+//            <password-list.txt> <output.bloom> [false-positive-rate, default 0.001]
+public final class BreachedPasswordFilterCompiler {
+
+    private BreachedPasswordFilterCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BreachedPasswordFilterCompiler <password-list.txt> <output.bloom> [false-positive-rate]");
+            System.exit(1);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        double falsePositiveRate = args.length > 2 ? Double.parseDouble(args[2]) : 0.001;
+
+        long count = countPasswords(input);
+        compile(input, output, count, falsePositiveRate);
+        System.out.printf("Compiled %d passwords into %s (%d bytes)%n", count, output, Files.size(output));
+    }
+
+    static void compile(Path input, Path output, long expectedCount, double falsePositiveRate) throws IOException {
+        // Standard Bloom filter sizing: m = -n ln(p) / ln(2)^2 bits, k = m/n ln(2) hash functions
+        long n = Math.max(1, expectedCount);
+        long bitCount = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        long wordCount = BreachedPasswordFilter.wordCount(bitCount);
+        if (BreachedPasswordFilter.HEADER_BYTES + wordCount * Long.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filter would exceed 2 GB; raise the false-positive rate");
+        }
+
+        long[] words = new long[(int) wordCount];
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String password;
+            while ((password = reader.readLine()) != null) {
+                if (!password.isEmpty()) {
+                    BreachedPasswordFilter.setBits(words, bitCount, hashCount, password);
+                }
+            }
+        }
+
+        try (OutputStream file = Files.newOutputStream(output);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(BreachedPasswordFilter.MAGIC);
+            out.writeInt(hashCount);
+            out.writeLong(bitCount);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private static long countPasswords(Path input) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            return reader.lines().filter(line -> !line.isEmpty()).count();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.minispringusermanagement.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-key rate limiter using the generic cell rate algorithm (GCRA): each key holds only its
+// "theoretical arrival time" in an AtomicLong, updated with a CAS, so a check is one map lookup and one
+// CAS with no locks. A key whose arrival time is in the past is indistinguishable from a new key, which
+// makes idle entries safe to evict. When the map is full, unknown keys share a fixed array of striped
+// cells instead of growing it, so memory stays bounded under a flood of distinct keys.
+public final class RateLimiter<K> {
+
+    private static final int OVERFLOW_STRIPES = 4096;
+    private static final long INLINE_SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<K, AtomicLong> cells = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflow = new AtomicLong[OVERFLOW_STRIPES];
+    private final AtomicLong lastInlineSweep;
+
+    public RateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+        long now = System.nanoTime();
+        for (int i = 0; i < OVERFLOW_STRIPES; i++) {
+            overflow[i] = new AtomicLong(now);
+        }
+        this.lastInlineSweep = new AtomicLong(now);
+    }
+
+    // Returns 0 if the request may proceed, otherwise the nanoseconds until the key has a permit again
+    public long tryAcquire(K key) {
+        long now = System.nanoTime();
+        AtomicLong cell = cellFor(key, now);
+        while (true) {
+            long arrival = cell.get();
+            long start = arrival - now > 0 ? arrival : now;
+            long wait = start - now - burstToleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (cell.compareAndSet(arrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Removes keys that have fully recovered. A request racing with the removal of its key may go uncounted.
+    public void evictIdle() {
+        long now = System.nanoTime();
+        cells.values().removeIf(cell -> cell.get() - now <= 0);
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    private AtomicLong cellFor(K key, long now) {
+        AtomicLong cell = cells.get(key);
+        if (cell != null) {
+            return cell;
+        }
+        if (cells.size() >= maxKeys) {
+            // At most one inline sweep per second, so a flood of new keys can't make every call O(n)
+            long last = lastInlineSweep.get();
+            if (now - last >= INLINE_SWEEP_INTERVAL_NANOS && lastInlineSweep.compareAndSet(last, now)) {
+                evictIdle();
+            }
+            if (cells.size() >= maxKeys) {
+                int hash = key.hashCode();
+                return overflow[(hash ^ (hash >>> 16)) & (OVERFLOW_STRIPES - 1)];
+            }
+        }
+        AtomicLong created = new AtomicLong(now);
+        AtomicLong existing = cells.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+}
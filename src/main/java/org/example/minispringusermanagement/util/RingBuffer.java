@@ -0,0 +1,80 @@
+package org.example.minispringusermanagement.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Bounded multi-producer, single-consumer ring of preallocated, reusable slots. Producers claim a sequence
+// with one CAS, fill the slot in place and publish it; nothing is allocated per event and a full ring
+// makes claim() fail instead of blocking. A single consumer thread drains published slots in order.
+public final class RingBuffer<E> {
+
+    private final E[] slots;
+    private final int mask;
+    // Sequence last published into each slot; a slot is readable once it holds the sequence being read
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public RingBuffer(int capacity, Supplier<E> slotFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = (E[]) new Object[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+            published.set(i, -1);
+        }
+    }
+
+    // Returns the claimed sequence, or -1 when the consumer is a full ring behind
+    public long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() > mask) {
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    // The slot for a claimed sequence; only the claiming thread may write it until it is published
+    public E get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    // Hands up to maxBatch published slots to the handler in sequence order, then frees them for reuse.
+    // Must only be called from the single consumer thread.
+    public int drain(Consumer<E> handler, int maxBatch) {
+        long next = consumed.get();
+        int count = 0;
+        while (count < maxBatch && published.get((int) next & mask) == next) {
+            handler.accept(slots[(int) next & mask]);
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumed.lazySet(next);
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // Approximate number of claimed slots not yet drained
+    public int size() {
+        return (int) Math.max(0, claimed.get() - consumed.get());
+    }
+}
@@ -0,0 +1,280 @@
+package org.example.minispringusermanagement.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.CRC32C;
+
+// Append-only journal of byte records, split into fixed-size memory-mapped segment files named after the
+// sequence number of their first record. Appending is a copy into the mapped segment; durability comes from
+// force(), which the single writer calls at its own pace. A full segment is forced, truncated to its used
+// length by the writer and replaced by the next one. close() never truncates: it may run while a late append
+// still writes to the mapping, and shrinking a mapped file under a write crashes the JVM. The zero-filled
+// tail of the last segment is trimmed by the next open() instead.
+//
+// Frame layout (big-endian): int payload length, int CRC32C of sequence + payload, long sequence, payload.
+// The length is stored last, so a frame is either complete or reads as the end of the segment; a torn write
+// fails its CRC. After a crash, writing resumes in a new segment after the last intact record.
+//
+// Any thread may read while one thread appends. Readers use positional file reads and never see records
+// beyond the last completed append.
+public final class SegmentedJournal implements Closeable {
+
+    private static final int FRAME_HEADER_BYTES = 16;
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK_FILE = "journal.lock";
+    // Every this many records the reader index remembers where a frame starts
+    private static final int INDEX_INTERVAL = 256;
+
+    public interface RecordHandler {
+        void handle(long sequence, ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListSet<Long> segments = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListMap<Long, Position> index = new ConcurrentSkipListMap<>();
+    private final CRC32C writeCrc = new CRC32C();
+
+    private FileChannel lockChannel;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long nextSequence;
+    // One past the last sequence readers may see
+    private volatile long writtenSequence;
+    private volatile boolean closed;
+
+    private SegmentedJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    // Opens the journal in 'directory', recovering the next sequence from the existing segments. Fails if
+    // another journal, in this or another process, has the directory open.
+    public static SegmentedJournal open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        SegmentedJournal journal = new SegmentedJournal(directory, segmentSize);
+        journal.lock();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long start = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+                journal.segments.add(start);
+                journal.index.put(start, new Position(start, 0));
+            }
+        }
+        long next = 0;
+        if (!journal.segments.isEmpty()) {
+            long last = journal.segments.last();
+            long[] used = {0};
+            journal.writtenSequence = Long.MAX_VALUE;  // Let the recovery scan read every intact record
+            next = journal.scan(last, 0, last, Long.MAX_VALUE,
+                    (sequence, payload) -> used[0] += FRAME_HEADER_BYTES + payload.remaining());
+            if (next > last) {
+                journal.trim(last, used[0]);
+            }
+        }
+        journal.nextSequence = next;
+        journal.writtenSequence = next;
+        journal.startSegment(next);
+        return journal;
+    }
+
+    // Appends one record and returns its sequence. Only one thread may append.
+    public long append(ByteBuffer payload) throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed: " + directory);
+        }
+        int length = payload.remaining();
+        int frameBytes = FRAME_HEADER_BYTES + length;
+        if (frameBytes > segmentSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit in a segment");
+        }
+        if (segment.remaining() < frameBytes) {
+            // Only this thread writes to the mapping, and it moves on to the new segment
+            segment.force();
+            channel.truncate(segment.position());
+            channel.close();
+            startSegment(nextSequence);
+        }
+
+        long sequence = nextSequence++;
+        int start = segment.position();
+        segment.putLong(start + 8, sequence);
+        segment.put(start + FRAME_HEADER_BYTES, payload, payload.position(), length);
+        writeCrc.reset();
+        writeCrc.update(segment.slice(start + 8, 8 + length));
+        segment.putInt(start + 4, (int) writeCrc.getValue());
+        segment.putInt(start, length);
+        segment.position(start + frameBytes);
+
+        if (sequence % INDEX_INTERVAL == 0) {
+            index.put(sequence, new Position(segmentStart, start));
+        }
+        writtenSequence = sequence + 1;
+        return sequence;
+    }
+
+    // Flushes appended records to the storage device; close() has already flushed a closed journal
+    public void force() {
+        if (!closed) {
+            segment.force();
+        }
+    }
+
+    public long nextSequence() {
+        return writtenSequence;
+    }
+
+    // Hands up to 'max' records starting at 'fromSequence' to the handler; returns the sequence to read next
+    public long read(long fromSequence, int max, RecordHandler handler) throws IOException {
+        Map.Entry<Long, Position> entry = index.floorEntry(Math.max(fromSequence, 0));
+        if (entry == null) {
+            if (segments.isEmpty()) {
+                return fromSequence;
+            }
+            entry = index.firstEntry();
+        }
+        long from = Math.max(fromSequence, entry.getKey());
+        long segment = entry.getValue().segment;
+        long offset = entry.getValue().offset;
+        long expected = entry.getKey();
+        long limit = from + max;
+        while (true) {
+            long next = scan(segment, offset, expected, limit, (sequence, payload) -> {
+                if (sequence >= from) {
+                    handler.handle(sequence, payload);
+                }
+            });
+            Long following = segments.higher(segment);
+            if (next >= limit || next >= writtenSequence || following == null || following != next) {
+                return Math.max(next, from);
+            }
+            segment = following;
+            offset = 0;
+            expected = following;
+        }
+    }
+
+    // Safe to call while the writer is still appending: the mapping stays valid and the file keeps its size
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            segment.force();
+            channel.close();
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    // Two writers would both start segments at the same sequence and truncate each other's records
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Journal directory is already in use: " + directory);
+        }
+    }
+
+    // Reads intact frames of one segment from 'offset' while they continue the sequence from 'expected' and
+    // are below 'limit'; returns the sequence after the last frame read
+    private long scan(long segmentStart, long offset, long expected, long limit, RecordHandler handler) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        try (FileChannel file = FileChannel.open(segmentPath(segmentStart), StandardOpenOption.READ)) {
+            long size = file.size();
+            while (expected < limit && expected < writtenSequence && offset + FRAME_HEADER_BYTES <= size) {
+                header.clear();
+                if (readFully(file, header, offset) < FRAME_HEADER_BYTES) {
+                    break;
+                }
+                int length = header.getInt(0);
+                long sequence = header.getLong(8);
+                if (length <= 0 || offset + FRAME_HEADER_BYTES + length > size || sequence != expected) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                if (readFully(file, payload, offset + FRAME_HEADER_BYTES) < length) {
+                    break;
+                }
+                crc.reset();
+                crc.update(header.array(), 8, 8);
+                crc.update(payload.array(), 0, length);
+                if ((int) crc.getValue() != header.getInt(4)) {
+                    break;
+                }
+                if (sequence % INDEX_INTERVAL == 0) {
+                    index.putIfAbsent(sequence, new Position(segmentStart, offset));
+                }
+                handler.handle(sequence, payload.flip());
+                offset += FRAME_HEADER_BYTES + length;
+                expected++;
+            }
+        }
+        return expected;
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        // A segment with this name can only be left over without intact records, so start it from scratch
+        channel = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentStart = firstSequence;
+        segments.add(firstSequence);
+        index.put(firstSequence, new Position(firstSequence, 0));
+    }
+
+    // Cuts a segment left by an earlier run down to its intact records; nothing maps it any more
+    private void trim(long firstSequence, long length) throws IOException {
+        try (FileChannel file = FileChannel.open(segmentPath(firstSequence), StandardOpenOption.WRITE)) {
+            if (file.size() > length) {
+                file.truncate(length);
+            }
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+    }
+
+    private static int readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = file.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static final class Position {
+        final long segment;
+        final long offset;
+
+        Position(long segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.minispringusermanagement.util;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory denylist of revoked access tokens, consulted by JwtRequestFilter on every request.
+// Revoked token ids (jti) are grouped into buckets by the token's expiration time, so once a bucket's
+// tokens have expired on their own the whole bucket is dropped in one step. Per-user cutoffs reject
+// every token issued up to a logout-everywhere, password change or deletion.
+//
+// Lookups are two ConcurrentHashMap reads, without locks or database access. The list lives in this
+// process only and is lost on restart, which short access-token lifetimes keep acceptable.
+@Component
+public class TokenDenylist {
+
+    private final long bucketMillis;
+    private final long accessTokenTtlMillis;
+
+    // Expiration bucket -> revoked token ids expiring within it
+    private final Map<Long, Set<String>> revokedIds = new ConcurrentHashMap<>();
+    // User id -> epoch millis before which that user's tokens are revoked
+    private final Map<Long, Long> notBefore = new ConcurrentHashMap<>();
+
+    public TokenDenylist(@Value("${jwt.denylist.bucket:1m}") Duration bucket,
+                         @Value("${jwt.access-token.ttl:15m}") Duration accessTokenTtl) {
+        this.bucketMillis = bucket.toMillis();
+        this.accessTokenTtlMillis = accessTokenTtl.toMillis();
+    }
+
+    // Revokes a single token, e.g. on logout
+    public void revoke(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (claims.getId() == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        revokedIds.computeIfAbsent(bucketOf(expiration.getTime()), bucket -> ConcurrentHashMap.newKeySet())
+                .add(claims.getId());
+    }
+
+    // Revokes every token issued to the user up to now. Cutoffs are compared with the millisecond issue time,
+    // and a token issued in the same millisecond counts as revoked: it may have been issued just before.
+    public void revokeUser(long userId) {
+        notBefore.merge(userId, System.currentTimeMillis(), Math::max);
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (claims.getId() != null && expiration != null) {
+            Set<String> bucket = revokedIds.get(bucketOf(expiration.getTime()));
+            if (bucket != null && bucket.contains(claims.getId())) {
+                return true;
+            }
+        }
+        // A token without a user id could never be caught by a user-level revocation, so it is not accepted
+        Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+        if (userId == null) {
+            return true;
+        }
+        Long cutoff = notBefore.get(userId.longValue());
+        return cutoff != null && issuedAtMillis(claims) <= cutoff;
+    }
+
+    // Drops buckets whose tokens have all expired, and user cutoffs older than any token still valid
+    @Scheduled(fixedDelayString = "${jwt.denylist.sweep-interval:PT1M}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        long currentBucket = bucketOf(now);
+        revokedIds.keySet().removeIf(bucket -> bucket < currentBucket);
+        notBefore.values().removeIf(cutoff -> cutoff + accessTokenTtlMillis < now);
+    }
+
+    // Tokens issued before the millisecond claim existed only have 'iat'; they are taken to be issued at the
+    // start of that second, so a revocation within the same second still covers them
+    private static long issuedAtMillis(Claims claims) {
+        Number millis = claims.get(JwtUtil.ISSUED_AT_MILLIS_CLAIM, Number.class);
+        if (millis != null) {
+            return millis.longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt == null ? Long.MIN_VALUE : issuedAt.getTime();
+    }
+
+    private long bucketOf(long epochMillis) {
+        return epochMillis / bucketMillis;
+    }
+}
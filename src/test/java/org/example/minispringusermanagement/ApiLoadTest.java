@@ -0,0 +1,200 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// End-to-end load test of the REST API: boots the application on a random port with its own in-memory
+// database, seeds users through the bulk import and replays a mix of the main endpoints. Every endpoint
+// gets its own latency histogram; results are printed and written to target/benchmarks/api-load.json.
+//
+// Run with: mvn -Pbenchmark test -Dtest=ApiLoadTest [-Dloadtest.users=100 -Dloadtest.concurrency=32
+//           -Dloadtest.warmup-seconds=10 -Dloadtest.duration-seconds=30]
+//
+// Traffic mix per request: 10% POST /authenticate, 55% GET /users/{id} (own profile), 20% GET /users (admin page),
+// 5% PUT /users/{id} (own profile, password left out), 10% POST /users/register.
+@Tag("benchmark")
+class ApiLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 100);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+
+    private static final String PASSWORD = "LoadPass#1";
+    private static final String JSON = "application/json";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final AtomicInteger registrations = new AtomicInteger();
+
+    @Test
+    void replayTrafficMix() throws Exception {
+        // Command-line arguments, so they take precedence over application.properties
+        String[] args = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.org.example.minispringusermanagement=WARN",
+                "--user-change-log.enabled=false",
+                "--management.server.port=0",
+                // Every client comes from 127.0.0.1; the login throttle would otherwise answer most logins with 429
+                "--rate-limit.login.enabled=false"};
+
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(MiniSpringUserManagementApplication.class).run(args)) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            String adminToken = authenticate(baseUrl, "admin", "adminPass");
+            long[] userIds = seedUsers(baseUrl, adminToken);
+
+            Map<String, HttpLoadDriver.Result> results = new HttpLoadDriver().runMix(CONCURRENCY, WARMUP, MEASUREMENT,
+                    client -> new ClientSession(baseUrl, adminToken, client % USERS, userIds[client % USERS]));
+
+            results.values().forEach(System.out::println);
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("users", USERS);
+            report.put("concurrency", CONCURRENCY);
+            report.put("warmupSeconds", WARMUP.toSeconds());
+            report.put("durationSeconds", MEASUREMENT.toSeconds());
+            report.put("endpoints", results.values().stream().map(HttpLoadDriver.Result::toMap).toList());
+
+            Path output = Path.of("target", "benchmarks", "api-load.json");
+            Files.createDirectories(output.getParent());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), report);
+        }
+    }
+
+    // One simulated client acting as one seeded user; only ever used from its own load-driver thread
+    private final class ClientSession implements Supplier<HttpLoadDriver.Call> {
+
+        private final String baseUrl;
+        private final String adminToken;
+        private final String username;
+        private final long userId;
+        private String token;
+
+        ClientSession(String baseUrl, String adminToken, int user, long userId) {
+            this.baseUrl = baseUrl;
+            this.adminToken = adminToken;
+            this.username = username(user);
+            this.userId = userId;
+        }
+
+        @Override
+        public HttpLoadDriver.Call get() {
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            if (token == null || roll < 10) {
+                return new HttpLoadDriver.Call("POST /authenticate", authenticateRequest(baseUrl, username, PASSWORD),
+                        body -> token = readField(body, "jwt"));
+            }
+            if (roll < 65) {
+                return new HttpLoadDriver.Call("GET /users/{id}", get("/users/" + userId, token), null);
+            }
+            if (roll < 85) {
+                return new HttpLoadDriver.Call("GET /users", get("/users?limit=50", adminToken), null);
+            }
+            if (roll < 90) {
+                String body = "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\"}";
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + userId))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", JSON)
+                        .PUT(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                return new HttpLoadDriver.Call("PUT /users/{id}", request, null);
+            }
+            String newUser = "reg" + registrations.incrementAndGet();
+            String body = "{\"username\":\"" + newUser + "\",\"email\":\"" + newUser + "@example.com\","
+                    + "\"password\":\"" + PASSWORD + "\"}";
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/register"))
+                    .header("Content-Type", JSON)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            return new HttpLoadDriver.Call("POST /users/register", request, null);
+        }
+
+        private HttpRequest get(String path, String bearer) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Authorization", "Bearer " + bearer)
+                    .GET()
+                    .build();
+        }
+    }
+
+    // Imports the users in one NDJSON request, then reads their ids back through the keyset pages
+    private long[] seedUsers(String baseUrl, String adminToken) throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            ndjson.append("{\"username\":\"").append(username(i)).append("\",\"email\":\"").append(username(i))
+                    .append("@example.com\",\"password\":\"").append(PASSWORD).append("\"}\n");
+        }
+        HttpRequest importRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/admin/users/import"))
+                .header("Authorization", "Bearer " + adminToken)
+                .header("Content-Type", "application/x-ndjson")
+                .timeout(Duration.ofMinutes(10))
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                .build();
+        JsonNode report = objectMapper.readTree(http.send(importRequest, HttpResponse.BodyHandlers.ofString()).body());
+        if (report.path("imported").asInt() != USERS) {
+            throw new IllegalStateException("Seeding failed: " + report);
+        }
+
+        Map<String, Long> ids = new LinkedHashMap<>();
+        Long cursor = 0L;
+        while (cursor != null) {
+            HttpRequest page = HttpRequest.newBuilder(URI.create(baseUrl + "/users?limit=500&cursor=" + cursor))
+                    .header("Authorization", "Bearer " + adminToken)
+                    .GET()
+                    .build();
+            JsonNode body = objectMapper.readTree(http.send(page, HttpResponse.BodyHandlers.ofString()).body());
+            body.path("users").forEach(user -> ids.put(user.path("username").asText(), user.path("id").asLong()));
+            cursor = body.path("nextCursor").isNull() ? null : body.path("nextCursor").asLong();
+        }
+
+        long[] userIds = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = ids.get(username(i));
+        }
+        return userIds;
+    }
+
+    private String authenticate(String baseUrl, String username, String password) throws Exception {
+        HttpResponse<String> response = http.send(authenticateRequest(baseUrl, username, password),
+                HttpResponse.BodyHandlers.ofString());
+        return readField(response.body(), "jwt");
+    }
+
+    private HttpRequest authenticateRequest(String baseUrl, String username, String password) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/authenticate"))
+                .header("Content-Type", JSON)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .build();
+    }
+
+    private String readField(String json, String field) {
+        try {
+            return objectMapper.readTree(json).path(field).asText();
+        } catch (Exception e) {
+            throw new IllegalStateException("Unexpected response: " + json, e);
+        }
+    }
+
+    private static String username(int user) {
+        return String.format("load%05d", user);
+    }
+}
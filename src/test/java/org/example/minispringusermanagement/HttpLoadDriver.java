@@ -0,0 +1,149 @@
+package org.example.minispringusermanagement;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Closed-loop HTTP load generator for benchmarks: a fixed number of clients each send one request after another.
+// Latencies go into HdrHistogram recorders (microseconds, 3 significant digits).
+final class HttpLoadDriver {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // Latencies are only recorded after the warmup, which lets the JIT and connection pools settle first
+    Result run(String scenario, int concurrency, Duration warmup, Duration measurement,
+               Supplier<HttpRequest> requests) throws InterruptedException {
+        return runMix(concurrency, warmup, measurement, client -> () -> new Call(scenario, requests.get(), null))
+                .get(scenario);
+    }
+
+    // Mixed workload: every client gets its own call generator (so it can keep state such as its token), and
+    // each call is recorded under its endpoint. The returned map is sorted by endpoint and includes TOTAL.
+    Map<String, Result> runMix(int concurrency, Duration warmup, Duration measurement,
+                               IntFunction<Supplier<Call>> clientFactory) throws InterruptedException {
+        Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + measurement.toNanos();
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Supplier<Call> calls = clientFactory.apply(i);
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    Call call = calls.get();
+                    long start = System.nanoTime();
+                    boolean ok;
+                    try {
+                        if (call.onSuccess == null) {
+                            ok = client.send(call.request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+                        } else {
+                            HttpResponse<String> response = client.send(call.request, HttpResponse.BodyHandlers.ofString());
+                            ok = response.statusCode() < 400;
+                            if (ok) {
+                                call.onSuccess.accept(response.body());
+                            }
+                        }
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    long end = System.nanoTime();
+                    if (start >= measureFrom && end <= deadline) {
+                        long micros = TimeUnit.NANOSECONDS.toMicros(end - start);
+                        recorders.computeIfAbsent(call.endpoint, endpoint -> new Recorder(3)).recordValue(micros);
+                        recorders.computeIfAbsent(TOTAL, endpoint -> new Recorder(3)).recordValue(micros);
+                        if (!ok) {
+                            errors.computeIfAbsent(call.endpoint, endpoint -> new LongAdder()).increment();
+                            errors.computeIfAbsent(TOTAL, endpoint -> new LongAdder()).increment();
+                        }
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(warmup.plus(measurement).toSeconds() + 60, TimeUnit.SECONDS);
+
+        Map<String, Result> results = new TreeMap<>();
+        recorders.forEach((endpoint, recorder) -> {
+            LongAdder endpointErrors = errors.get(endpoint);
+            results.put(endpoint, new Result(endpoint, concurrency, recorder.getIntervalHistogram(),
+                    endpointErrors == null ? 0 : endpointErrors.sum(), measurement));
+        });
+        return results;
+    }
+
+    static final String TOTAL = "TOTAL";
+
+    // One request of a workload, reported under 'endpoint'; onSuccess (optional) receives the body of a 2xx/3xx response
+    static final class Call {
+        final String endpoint;
+        final HttpRequest request;
+        final Consumer<String> onSuccess;
+
+        Call(String endpoint, HttpRequest request, Consumer<String> onSuccess) {
+            this.endpoint = endpoint;
+            this.request = request;
+            this.onSuccess = onSuccess;
+        }
+    }
+
+    static final class Result {
+        final String scenario;
+        final int concurrency;
+        final Histogram latencyMicros;
+        final long errors;
+        final double throughput;
+
+        Result(String scenario, int concurrency, Histogram latencyMicros, long errors, Duration measurement) {
+            this.scenario = scenario;
+            this.concurrency = concurrency;
+            this.latencyMicros = latencyMicros;
+            this.errors = errors;
+            this.throughput = latencyMicros.getTotalCount() / (measurement.toMillis() / 1000.0);
+        }
+
+        double percentileMillis(double percentile) {
+            return latencyMicros.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("scenario", scenario);
+            map.put("concurrency", concurrency);
+            map.put("requests", latencyMicros.getTotalCount());
+            map.put("errors", errors);
+            map.put("requestsPerSecond", Math.round(throughput * 10) / 10.0);
+            map.put("p50Ms", percentileMillis(50));
+            map.put("p90Ms", percentileMillis(90));
+            map.put("p99Ms", percentileMillis(99));
+            map.put("p999Ms", percentileMillis(99.9));
+            map.put("maxMs", latencyMicros.getMaxValue() / 1000.0);
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s %6d req/s  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  errors %d",
+                    scenario, Math.round(throughput), percentileMillis(50), percentileMillis(99),
+                    percentileMillis(99.9), errors);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleTest {
+
+    // One attempt per minute and key, so the second attempt is always throttled
+    private final LoginThrottle throttle = new LoginThrottle(true, 1, 1, 1, 1, 1, 1, 100, new SimpleMeterRegistry());
+
+    @Test
+    void retryAfterIsRoundedUpToWholeSeconds() {
+        assertEquals(1, LoginThrottle.toRetryAfterSeconds(1));
+        assertEquals(1, LoginThrottle.toRetryAfterSeconds(1_000_000_000L));
+        assertEquals(2, LoginThrottle.toRetryAfterSeconds(1_000_000_001L));
+    }
+
+    @Test
+    void throttledIpGetsRetryAfterOfTheRemainingInterval() {
+        assertEquals(0, throttle.checkIp("10.0.0.1"));
+
+        assertEquals(60, throttle.checkIp("10.0.0.1"));
+    }
+
+    @Test
+    void registrationsUseTheirOwnIpBucket() {
+        assertEquals(0, throttle.checkRegistrationIp("10.0.0.1"));
+        assertEquals(60, throttle.checkRegistrationIp("10.0.0.1"));
+
+        // Logins from the same address are unaffected by the exhausted registration bucket
+        assertEquals(0, throttle.checkIp("10.0.0.1"));
+    }
+
+    @Test
+    void usernameThrottleRejectsWithRetryAfter() {
+        throttle.checkUsername("admin");
+
+        LoginThrottledException e = assertThrows(LoginThrottledException.class, () -> throttle.checkUsername("Admin "));
+        assertEquals(60, e.getRetryAfterSeconds());
+    }
+
+    @Test
+    void disabledThrottleAllowsEverything() {
+        LoginThrottle disabled = new LoginThrottle(false, 1, 1, 1, 1, 1, 1, 100, new SimpleMeterRegistry());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, disabled.checkIp("10.0.0.1"));
+            assertEquals(0, disabled.checkRegistrationIp("10.0.0.1"));
+            assertDoesNotThrow(() -> disabled.checkUsername("admin"));
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package org.example.minispringusermanagement;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class MiniSpringUserManagementApplicationTests {
 
+    // The change journal has no default directory
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("user-change-log.directory", () -> directory.toString());
+    }
+
     @Test
     void contextLoads() {
     }
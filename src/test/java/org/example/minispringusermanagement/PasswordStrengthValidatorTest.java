@@ -0,0 +1,99 @@
+package org.example.minispringusermanagement;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.groups.Default;
+import org.example.minispringusermanagement.util.BreachedPasswordFilter;
+import org.example.minispringusermanagement.util.BreachedPasswordFilterCompiler;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordStrengthValidatorTest {
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    private final PasswordStrengthValidator strength = new PasswordStrengthValidator();
+
+    @BeforeAll
+    static void createValidator() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void acceptsPasswordWithEveryCharacterClass() {
+        assertTrue(strength.isValid("Str0ng!Passw0rd", null));
+        assertTrue(strength.isValid("aB3$efgh", null));
+    }
+
+    @Test
+    void rejectsPasswordMissingACharacterClass() {
+        assertFalse(strength.isValid("str0ng!passw0rd", null));  // No uppercase
+        assertFalse(strength.isValid("STR0NG!PASSW0RD", null));  // No lowercase
+        assertFalse(strength.isValid("Strong!Password", null));  // No digit
+        assertFalse(strength.isValid("Str0ngPassw0rd", null));   // No special character
+    }
+
+    @Test
+    void rejectsShortPasswordAndLineTerminators() {
+        assertFalse(strength.isValid("aB3$efg", null));
+        assertFalse(strength.isValid("Str0ng!\nPassw0rd", null));
+    }
+
+    @Test
+    void leavesMissingPasswordToNotBlank() {
+        assertTrue(strength.isValid(null, null));
+    }
+
+    @Test
+    void rejectsBreachedPassword(@TempDir Path directory) throws IOException {
+        Path list = Files.write(directory.resolve("breached.txt"), List.of("Summer2024!", "P@ssw0rd123"));
+        Path bloom = directory.resolve("breached.bloom");
+        BreachedPasswordFilterCompiler.main(new String[]{list.toString(), bloom.toString()});
+
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("breachedPasswordFilter", BreachedPasswordFilter.open(bloom));
+        PasswordStrengthValidator withFilter =
+                new PasswordStrengthValidator(beans.getBeanProvider(BreachedPasswordFilter.class));
+
+        assertFalse(withFilter.isValid("P@ssw0rd123", null));
+        assertTrue(withFilter.isValid("Str0ng!Passw0rd", null));
+    }
+
+    @Test
+    void strengthIsOnlyCheckedInTheRawPasswordGroup() {
+        User user = new User();
+        user.setUsername("someone");
+        user.setEmail("someone@example.com");
+        user.setPassword("weakpassword");
+
+        // What JPA checks at flush: the default group only
+        assertTrue(validator.validate(user).isEmpty());
+
+        // What requests and imports check: the raw password as well
+        Set<ConstraintViolation<User>> violations = validator.validate(user, Default.class, User.RawPassword.class);
+        assertEquals(1, violations.size());
+        assertEquals("password", violations.iterator().next().getPropertyPath().toString());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.minispringusermanagement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:refreshtokens",
+        "user-change-log.enabled=false"})
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private UserPrincipal admin;
+
+    @BeforeEach
+    void loadAdmin() {
+        User user = userRepository.findByUsername("admin").orElseThrow();
+        admin = new UserPrincipal(user.getId(), user.getUsername(), null, user.getRole());
+    }
+
+    @Test
+    void rotationIssuesSuccessorForSameUser() {
+        String token = refreshTokenService.issue(admin);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(token);
+
+        assertEquals(RefreshTokenService.Outcome.ROTATED, rotation.getOutcome());
+        assertEquals(admin.getId(), rotation.getPrincipal().getId());
+        assertNotNull(rotation.getRefreshToken());
+        assertNotEquals(token, rotation.getRefreshToken());
+    }
+
+    @Test
+    void reusedTokenRevokesWholeFamily() {
+        String token = refreshTokenService.issue(admin);
+        String successor = refreshTokenService.rotate(token).getRefreshToken();
+
+        assertEquals(RefreshTokenService.Outcome.REUSED, refreshTokenService.rotate(token).getOutcome());
+        // The legitimate successor went down with the family
+        assertEquals(RefreshTokenService.Outcome.INVALID, refreshTokenService.rotate(successor).getOutcome());
+    }
+
+    @Test
+    void reuseLeavesOtherFamiliesAlone() {
+        String stolen = refreshTokenService.issue(admin);
+        String otherLogin = refreshTokenService.issue(admin);
+        refreshTokenService.rotate(stolen);
+
+        refreshTokenService.rotate(stolen);
+
+        assertEquals(RefreshTokenService.Outcome.ROTATED, refreshTokenService.rotate(otherLogin).getOutcome());
+    }
+
+    @Test
+    void revokedFamilyCannotRotate() {
+        String token = refreshTokenService.issue(admin);
+
+        refreshTokenService.revokeFamily(token);
+
+        assertEquals(RefreshTokenService.Outcome.INVALID, refreshTokenService.rotate(token).getOutcome());
+    }
+
+    @Test
+    void unknownOrOversizedTokensAreInvalid() {
+        assertEquals(RefreshTokenService.Outcome.INVALID, refreshTokenService.rotate("unknown").getOutcome());
+        assertEquals(RefreshTokenService.Outcome.INVALID, refreshTokenService.rotate("x".repeat(65)).getOutcome());
+        assertEquals(RefreshTokenService.Outcome.INVALID, refreshTokenService.rotate(null).getOutcome());
+    }
+}
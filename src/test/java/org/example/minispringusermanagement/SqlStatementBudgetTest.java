@@ -0,0 +1,205 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.minispringusermanagement.filters.SqlStatementFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+// Maximum SQL statements per endpoint, read from the X-SQL-Statements header. Every request runs with the
+// cached user details evicted, so logins pay for the user lookup. A change that adds a round trip to an
+// endpoint fails here; lower the budget when a change removes one.
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlbudget",
+        "rate-limit.login.enabled=false",
+        "user-change-log.enabled=false"})
+@AutoConfigureMockMvc
+class SqlStatementBudgetTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JpaUserDetailsService userDetailsService;
+
+    private String adminToken;
+    // Ids of the seeded accounts, looked up rather than assumed
+    private long adminId;
+    private long userId;
+
+    @BeforeEach
+    void authenticateAdmin() throws Exception {
+        adminToken = login("admin", "adminPass").get("jwt").asText();
+        adminId = userRepository.findByUsername("admin").orElseThrow().getId();
+        userId = userRepository.findByUsername("user").orElseThrow().getId();
+    }
+
+    @Test
+    void authenticate() throws Exception {
+        // User lookup, refresh token insert
+        assertBudget(2, post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"admin\",\"password\":\"adminPass\"}"));
+    }
+
+    @Test
+    void authenticateWithWrongPassword() throws Exception {
+        assertBudget(1, 401, post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"admin\",\"password\":\"wrongPass\"}"));
+    }
+
+    @Test
+    void refresh() throws Exception {
+        String refreshToken = login("admin", "adminPass").get("refreshToken").asText();
+        // Token lookup, conditional rotation update, new token insert
+        assertBudget(3, post("/authenticate/refresh").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"refreshToken\":\"" + refreshToken + "\"}"));
+    }
+
+    @Test
+    void logout() throws Exception {
+        JsonNode tokens = login("admin", "adminPass");
+        assertBudget(2, post("/authenticate/logout").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokens.get("jwt").asText())
+                .content("{\"refreshToken\":\"" + tokens.get("refreshToken").asText() + "\"}"));
+    }
+
+    @Test
+    void register() throws Exception {
+        String username = "budget" + USERS.incrementAndGet();
+        // Insert, plus a sequence call when the id generator's pool runs out
+        assertBudget(2, post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(username, "Str0ng!Passw0rd")));
+    }
+
+    @Test
+    void getUser() throws Exception {
+        assertBudget(1, admin(get("/users/" + adminId)));
+    }
+
+    @Test
+    void getUserNotModified() throws Exception {
+        String etag = mockMvc.perform(admin(get("/users/" + adminId))).andReturn().getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        // Version-only query, no entity load
+        assertBudget(1, 304, admin(get("/users/" + adminId)).header(HttpHeaders.IF_NONE_MATCH, etag));
+    }
+
+    @Test
+    void ownProfileAsUser() throws Exception {
+        String userToken = login("user", "userPass").get("jwt").asText();
+        assertBudget(1, get("/users/" + userId).header(HttpHeaders.AUTHORIZATION, "Bearer " + userToken));
+    }
+
+    @Test
+    void listUsers() throws Exception {
+        assertBudget(1, admin(get("/users")));
+    }
+
+    @Test
+    void exportUsers() throws Exception {
+        assertBudget(1, admin(get("/users")).accept(MediaType.APPLICATION_NDJSON));
+    }
+
+    @Test
+    void searchUsers() throws Exception {
+        // Served from the in-memory index
+        assertBudget(0, admin(get("/users/search").param("q", "adm")));
+    }
+
+    @Test
+    void patchUser() throws Exception {
+        long id = registerUser();
+        // One select, one update of the changed column
+        assertBudget(2, admin(patch("/users/" + id)).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"patched" + id + "@example.com\"}"));
+    }
+
+    @Test
+    void putUser() throws Exception {
+        long id = registerUser();
+        String username = "budget" + USERS.incrementAndGet();
+        // Also revokes the user's refresh tokens, since the username and password change
+        assertBudget(3, admin(put("/users/" + id)).contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(username, "An0ther!Passw0rd")));
+    }
+
+    @Test
+    void revokeTokens() throws Exception {
+        long id = registerUser();
+        assertBudget(1, admin(post("/users/" + id + "/revoke-tokens")));
+    }
+
+    @Test
+    void deleteUser() throws Exception {
+        long id = registerUser();
+        // One select, one delete; refresh tokens go with the row through the ON DELETE CASCADE foreign key
+        assertBudget(2, admin(delete("/users/" + id)));
+    }
+
+    private void assertBudget(int maxStatements, RequestBuilder request) throws Exception {
+        assertBudget(maxStatements, 200, request);
+    }
+
+    private void assertBudget(int maxStatements, int expectedStatus, RequestBuilder request) throws Exception {
+        userDetailsService.evict("admin");
+        userDetailsService.evict("user");
+        MvcResult result = mockMvc.perform(request).andReturn();
+        assertEquals(expectedStatus, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+
+        String statements = result.getResponse().getHeader(SqlStatementFilter.STATEMENTS_HEADER);
+        assertTrue(statements != null, "Missing " + SqlStatementFilter.STATEMENTS_HEADER + " header");
+        int count = Integer.parseInt(statements);
+        assertTrue(count <= maxStatements,
+                "Expected at most " + maxStatements + " SQL statements, but the request executed " + count);
+    }
+
+    private MockHttpServletRequestBuilder admin(MockHttpServletRequestBuilder request) {
+        return request.header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken);
+    }
+
+    private JsonNode login(String username, String password) throws Exception {
+        String body = mockMvc.perform(post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private long registerUser() throws Exception {
+        String username = "budget" + USERS.incrementAndGet();
+        mockMvc.perform(post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content(userJson(username, "Str0ng!Passw0rd")));
+        return userRepository.findByUsername(username).orElseThrow().getId();
+    }
+
+    private static String userJson(String username, String password) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\",\"password\":\""
+                + password + "\"}";
+    }
+}
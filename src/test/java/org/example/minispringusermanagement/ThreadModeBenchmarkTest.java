@@ -0,0 +1,105 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Compares platform-thread and virtual-thread request handling under the same high-concurrency load.
+// Run with: mvn -Pvirtual-threads,benchmark test (Java 21); on Java 17 only the platform-thread mode runs.
+// Results are printed and written to target/benchmarks/thread-modes.json.
+@Tag("benchmark")
+class ThreadModeBenchmarkTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("benchmark.concurrency", 400);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("benchmark.warmup-seconds", 10));
+    private static final Duration MEASUREMENT = Duration.ofSeconds(Long.getLong("benchmark.duration-seconds", 30));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareThreadModes() throws Exception {
+        List<HttpLoadDriver.Result> results = new ArrayList<>();
+        results.add(runMode(false));
+        if (Runtime.version().feature() >= 21) {
+            results.add(runMode(true));
+        } else {
+            System.out.println("Skipping virtual-thread mode: it needs Java 21 (mvn -Pvirtual-threads,benchmark test)");
+        }
+
+        results.forEach(System.out::println);
+        Path output = Path.of("target", "benchmarks", "thread-modes.json");
+        Files.createDirectories(output.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter()
+                .writeValue(output.toFile(), results.stream().map(HttpLoadDriver.Result::toMap).toList());
+    }
+
+    private HttpLoadDriver.Result runMode(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        // Command-line arguments, so they take precedence over application.properties
+        String[] args = {
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.org.example.minispringusermanagement=WARN",
+                "--user-change-log.enabled=false",
+                "--management.server.port=0"};
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(MiniSpringUserManagementApplication.class);
+        if (virtualThreads) {
+            builder.profiles("virtual");
+        }
+
+        try (ConfigurableApplicationContext app = builder.run(args)) {
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            String token = authenticate(baseUrl);
+            String adminPath = "/users/" + adminId(baseUrl, token);
+
+            // Mix of a single-row lookup and a keyset page, both going through JwtRequestFilter and the database
+            return new HttpLoadDriver().run(mode + " threads", CONCURRENCY, WARMUP, MEASUREMENT, () -> {
+                String path = ThreadLocalRandom.current().nextInt(10) < 8 ? adminPath : "/users?limit=50";
+                return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header("Authorization", "Bearer " + token)
+                        .GET()
+                        .build();
+            });
+        }
+    }
+
+    private String authenticate(String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/authenticate"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"admin\",\"password\":\"adminPass\"}"))
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        return (String) objectMapper.readValue(response.body(), Map.class).get("jwt");
+    }
+
+    // The seeded admin's id, looked up rather than assumed; it is on the first page
+    private long adminId(String baseUrl, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users?limit=50"))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        for (JsonNode user : objectMapper.readTree(response.body()).path("users")) {
+            if ("admin".equals(user.path("username").asText())) {
+                return user.path("id").asLong();
+            }
+        }
+        throw new IllegalStateException("Admin not found: " + response.body());
+    }
+}
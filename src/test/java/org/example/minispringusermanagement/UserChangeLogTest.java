@@ -0,0 +1,107 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserChangeLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void recordedEventsAreReadBackWithActorAndFields() throws Exception {
+        UserChangeLog changeLog = start();
+        changeLog.record(UserChangeLog.Type.REGISTERED, 7, "alice", UserChangeLog.USERNAME | UserChangeLog.EMAIL);
+        UserPrincipal admin = new UserPrincipal(1L, "admin", null, Role.ADMIN);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+        changeLog.record(UserChangeLog.Type.UPDATED, 7, "alice", UserChangeLog.PASSWORD);
+
+        List<UserChangeEvent> events = awaitEvents(changeLog, 2);
+
+        assertEquals(UserChangeLog.Type.REGISTERED, events.get(0).getType());
+        assertEquals(List.of("username", "email"), events.get(0).getChangedFields());
+        assertNull(events.get(0).getActor());
+        assertEquals(UserChangeLog.Type.UPDATED, events.get(1).getType());
+        assertEquals(List.of("password"), events.get(1).getChangedFields());
+        assertEquals(1L, events.get(1).getActorId());
+        assertEquals("admin", events.get(1).getActor());
+        changeLog.shutdown();
+    }
+
+    @Test
+    void shutdownWritesQueuedEventsAndTheJournalReopens() throws Exception {
+        UserChangeLog changeLog = start();
+        for (int i = 0; i < 100; i++) {
+            changeLog.record(UserChangeLog.Type.IMPORTED, i, "user" + i, UserChangeLog.USERNAME);
+        }
+        changeLog.shutdown();
+
+        UserChangeLog reopened = start();
+        UserChangePage page = reopened.read(0, 1000);
+        assertEquals(100, page.getEvents().size());
+        assertEquals(100, page.getNextSequence());
+        assertEquals("user99", page.getEvents().get(99).getUsername());
+        reopened.shutdown();
+    }
+
+    @Test
+    void eventsAfterShutdownAreCountedAsDropped() throws Exception {
+        UserChangeLog changeLog = start();
+        changeLog.shutdown();
+
+        changeLog.record(UserChangeLog.Type.DELETED, 7, "alice", 0);
+
+        assertEquals(1.0, meterRegistry.get("user.change.log.dropped").tag("reason", "stopped")
+                .functionCounter().count());
+    }
+
+    @Test
+    void enabledJournalRequiresDirectory() {
+        UserChangeLog changeLog = new UserChangeLog(true, null, DataSize.ofKilobytes(64), 16, 8,
+                Duration.ofMillis(5), Duration.ofMillis(100), meterRegistry);
+
+        assertThrows(IllegalStateException.class, changeLog::start);
+    }
+
+    private UserChangeLog start() throws IOException {
+        UserChangeLog changeLog = new UserChangeLog(true, directory, DataSize.ofKilobytes(64), 16, 8,
+                Duration.ofMillis(5), Duration.ofMillis(100), meterRegistry);
+        changeLog.start();
+        return changeLog;
+    }
+
+    private static List<UserChangeEvent> awaitEvents(UserChangeLog changeLog, int count) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            List<UserChangeEvent> events = changeLog.read(0, 100).getEvents();
+            if (events.size() >= count || System.nanoTime() > deadline) {
+                assertTrue(events.size() >= count, "Only " + events.size() + " events written");
+                return events;
+            }
+            Thread.sleep(10);
+        }
+    }
+}
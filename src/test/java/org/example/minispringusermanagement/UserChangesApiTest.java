@@ -0,0 +1,119 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// GET /admin/users/changes over a journal in a temporary directory
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:userchanges",
+        "rate-limit.login.enabled=false",
+        "user-change-log.flush-interval=5ms"})
+@AutoConfigureMockMvc
+class UserChangesApiTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void journalDirectory(DynamicPropertyRegistry registry) {
+        registry.add("user-change-log.directory", () -> directory.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void tailsRegistrationUpdateAndDeletion() throws Exception {
+        String adminToken = login("admin", "adminPass");
+        long from = changes(adminToken, 0, 1000).get("nextSequence").asLong();
+
+        mockMvc.perform(post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"journaled\",\"email\":\"journaled@example.com\","
+                        + "\"password\":\"Str0ng!Passw0rd\"}"));
+        long id = userRepository.findByUsername("journaled").orElseThrow().getId();
+        mockMvc.perform(patch("/users/" + id).header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"email\":\"moved@example.com\"}"));
+        mockMvc.perform(delete("/users/" + id).header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken));
+
+        JsonNode page = awaitChanges(adminToken, from, 3);
+        JsonNode events = page.get("events");
+        assertEquals("REGISTERED", events.get(0).get("type").asText());
+        assertEquals(from, events.get(0).get("sequence").asLong());
+        assertTrue(events.get(0).get("actor").isNull());
+        assertEquals("UPDATED", events.get(1).get("type").asText());
+        assertEquals("email", events.get(1).get("changedFields").get(0).asText());
+        assertEquals("admin", events.get(1).get("actor").asText());
+        assertEquals("DELETED", events.get(2).get("type").asText());
+        assertEquals(id, events.get(2).get("userId").asLong());
+
+        // Tailing from the returned sequence yields nothing new
+        long next = page.get("nextSequence").asLong();
+        assertEquals(from + 3, next);
+        assertEquals(0, changes(adminToken, next, 100).get("events").size());
+        // The limit is honoured
+        assertEquals(1, changes(adminToken, from, 1).get("events").size());
+    }
+
+    @Test
+    void onlyAdminsMayReadTheJournal() throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/users/changes")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + login("user", "userPass"))).andReturn();
+
+        assertEquals(403, result.getResponse().getStatus());
+    }
+
+    private JsonNode awaitChanges(String token, long from, int count) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            JsonNode page = changes(token, from, 100);
+            if (page.get("events").size() >= count || System.nanoTime() > deadline) {
+                assertEquals(count, page.get("events").size(), page.toString());
+                return page;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private JsonNode changes(String token, long from, int limit) throws Exception {
+        MvcResult result = mockMvc.perform(get("/admin/users/changes")
+                        .param("from", String.valueOf(from)).param("limit", String.valueOf(limit))
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private String login(String username, String password) throws Exception {
+        String body = mockMvc.perform(post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("jwt").asText();
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// ETags on GET /users/{id}, If-None-Match revalidation and If-Match/optimistic locking on updates
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:conditional;LOCK_TIMEOUT=10000",
+        "rate-limit.login.enabled=false",
+        "user-change-log.enabled=false"})
+@AutoConfigureMockMvc
+class UserConditionalRequestTest {
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String adminToken;
+
+    @BeforeEach
+    void authenticateAdmin() throws Exception {
+        String body = mockMvc.perform(post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"adminPass\"}"))
+                .andReturn().getResponse().getContentAsString();
+        adminToken = objectMapper.readTree(body).get("jwt").asText();
+    }
+
+    @Test
+    void unchangedUserAnswersNotModified() throws Exception {
+        long id = registerUser();
+        String etag = etagOf(id);
+
+        MvcResult result = mockMvc.perform(admin(get("/users/" + id)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn();
+
+        assertEquals(304, result.getResponse().getStatus());
+        assertEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals("", result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void changedUserAnswersWithNewTag() throws Exception {
+        long id = registerUser();
+        String etag = etagOf(id);
+        patchEmail(id, null);
+
+        MvcResult result = mockMvc.perform(admin(get("/users/" + id)).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andReturn();
+
+        assertEquals(200, result.getResponse().getStatus());
+        assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void patchWithCurrentTagSucceedsAndChangesTheTag() throws Exception {
+        long id = registerUser();
+        String etag = etagOf(id);
+
+        assertEquals(200, patchEmail(id, etag).getResponse().getStatus());
+        assertNotEquals(etag, etagOf(id));
+    }
+
+    @Test
+    void patchWithStaleTagFailsPrecondition() throws Exception {
+        long id = registerUser();
+        String stale = etagOf(id);
+        patchEmail(id, null);
+
+        assertEquals(412, patchEmail(id, stale).getResponse().getStatus());
+    }
+
+    @Test
+    void patchWithWeakTagFailsPrecondition() throws Exception {
+        long id = registerUser();
+
+        assertEquals(412, patchEmail(id, "W/" + etagOf(id)).getResponse().getStatus());
+    }
+
+    @Test
+    void patchWithTagListMatchesAnyListedTag() throws Exception {
+        long id = registerUser();
+        String current = etagOf(id);
+
+        assertEquals(200, patchEmail(id, "\"" + id + "-99\", " + current).getResponse().getStatus());
+        assertEquals(412, patchEmail(id, "\"" + id + "-98\", \"" + id + "-99\"").getResponse().getStatus());
+    }
+
+    @Test
+    void concurrentUpdateAnswersConflict() throws Exception {
+        long id = registerUser();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Another writer updates the row and holds its lock; the PATCH reads the old version meanwhile and
+        // blocks on its UPDATE, which matches no row once the other writer commits
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> otherWriter = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("update users set version = version + 1 where id = ?", id);
+            locked.countDown();
+            await(release);
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS), "Other writer did not start");
+        CompletableFuture<MvcResult> patch = CompletableFuture.supplyAsync(() -> {
+            try {
+                return patchEmail(id, null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(500);
+        release.countDown();
+        otherWriter.get(10, TimeUnit.SECONDS);
+
+        assertEquals(409, patch.get(10, TimeUnit.SECONDS).getResponse().getStatus());
+    }
+
+    @Test
+    void rowsWithoutVersionAreServedAndBackfilled() throws Exception {
+        long id = registerUser();
+        // A version column added as nullable by an earlier schema update
+        jdbcTemplate.execute("alter table users alter column version set null");
+        jdbcTemplate.update("update users set version = null where id = ?", id);
+
+        assertEquals("\"" + id + "-0\"", etagOf(id));
+        MvcResult notModified = mockMvc.perform(admin(get("/users/" + id))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + id + "-0\"")).andReturn();
+        assertEquals(304, notModified.getResponse().getStatus());
+
+        userRepository.backfillVersions();
+        assertEquals(200, patchEmail(id, "\"" + id + "-0\"").getResponse().getStatus());
+        assertEquals("\"" + id + "-1\"", etagOf(id));
+    }
+
+    private String etagOf(long id) throws Exception {
+        MvcResult result = mockMvc.perform(admin(get("/users/" + id))).andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return result.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private MvcResult patchEmail(long id, String ifMatch) throws Exception {
+        MockHttpServletRequestBuilder request = admin(patch("/users/" + id)).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"patched" + USERS.incrementAndGet() + "@example.com\"}");
+        if (ifMatch != null) {
+            request.header(HttpHeaders.IF_MATCH, ifMatch);
+        }
+        return mockMvc.perform(request).andReturn();
+    }
+
+    private MockHttpServletRequestBuilder admin(MockHttpServletRequestBuilder request) {
+        return request.header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken);
+    }
+
+    private long registerUser() throws Exception {
+        String username = "etag" + USERS.incrementAndGet();
+        mockMvc.perform(post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"email\":\"" + username
+                        + "@example.com\",\"password\":\"Str0ng!Passw0rd\"}"));
+        return userRepository.findByUsername(username).orElseThrow().getId();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
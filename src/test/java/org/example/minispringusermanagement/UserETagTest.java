@@ -0,0 +1,55 @@
+package org.example.minispringusermanagement;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserETagTest {
+
+    @Test
+    void tagNamesIdAndVersion() {
+        assertEquals("\"7-3\"", UserETag.of(7, 3L));
+        assertEquals("\"7-0\"", UserETag.of(7, null));
+    }
+
+    @Test
+    void noneMatchAcceptsListsWeakTagsAndWildcard() {
+        assertTrue(UserETag.noneMatchHits("\"7-3\"", 7, 3L));
+        assertTrue(UserETag.noneMatchHits("\"7-1\", W/\"7-3\"", 7, 3L));
+        assertTrue(UserETag.noneMatchHits("*", 7, 3L));
+        assertFalse(UserETag.noneMatchHits("\"7-2\", \"8-3\"", 7, 3L));
+        assertTrue(UserETag.noneMatchHits("\"7-0\"", 7, null));
+    }
+
+    @Test
+    void matchAllowsAbsentHeaderAndWildcard() {
+        assertTrue(UserETag.matchHits(null, 7, 3L));
+        assertTrue(UserETag.matchHits(" ", 7, 3L));
+        assertTrue(UserETag.matchHits("*", 7, 3L));
+    }
+
+    @Test
+    void matchAcceptsAnyListedTag() {
+        assertTrue(UserETag.matchHits("\"7-3\"", 7, 3L));
+        assertTrue(UserETag.matchHits("\"7-2\", \"7-3\"", 7, 3L));
+    }
+
+    @Test
+    void matchUsesStrongComparison() {
+        assertFalse(UserETag.matchHits("W/\"7-3\"", 7, 3L));
+        assertTrue(UserETag.matchHits("W/\"7-3\", \"7-3\"", 7, 3L));
+    }
+
+    @Test
+    void matchRejectsOtherVersionsUsersAndGarbage() {
+        assertFalse(UserETag.matchHits("\"7-2\"", 7, 3L));
+        assertFalse(UserETag.matchHits("\"8-3\"", 7, 3L));
+        assertFalse(UserETag.matchHits("\"7-2\", \"8-3\"", 7, 3L));
+        assertFalse(UserETag.matchHits("3", 7, 3L));
+        assertFalse(UserETag.matchHits("\"3\"", 7, 3L));
+        assertFalse(UserETag.matchHits("7-3", 7, 3L));
+        assertFalse(UserETag.matchHits("not-a-tag", 7, 3L));
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.minispringusermanagement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// The index must agree with the case-sensitive uk_users_username/uk_users_email constraints
+class UserIdentityIndexTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    private final UserIdentityIndex index = new UserIdentityIndex(userRepository, null);
+
+    // Unless a test says otherwise, every value in the index is also in the database
+    @BeforeEach
+    void indexedValuesArePersisted() {
+        when(userRepository.existsByUsername(any())).thenReturn(true);
+        when(userRepository.existsByEmail(any())).thenReturn(true);
+    }
+
+    @Test
+    void rejectsExactDuplicates() {
+        assertNull(index.reserve("Alice", "alice@example.com"));
+
+        assertEquals(UserIdentityIndex.Conflict.USERNAME, index.reserve("Alice", "other@example.com"));
+        assertEquals(UserIdentityIndex.Conflict.EMAIL, index.reserve("Bob", "alice@example.com"));
+    }
+
+    @Test
+    void acceptsCaseVariantsLikeTheDatabase() {
+        assertNull(index.reserve("Alice", "alice@example.com"));
+
+        assertNull(index.reserve("alice", "Alice@example.com"));
+    }
+
+    @Test
+    void failedEmailReservationReleasesTheUsername() {
+        assertNull(index.reserve("Alice", "alice@example.com"));
+        assertEquals(UserIdentityIndex.Conflict.EMAIL, index.reserve("Bob", "alice@example.com"));
+
+        assertNull(index.reserve("Bob", "bob@example.com"));
+    }
+
+    @Test
+    void caseOnlyRenameIsAChange() {
+        assertNull(index.reserve("Alice", "alice@example.com"));
+
+        assertFalse(UserIdentityIndex.sameValue("Alice", "alice"));
+        assertNull(index.reserveChange("Alice", "alice@example.com", "alice", "alice@example.com"));
+        index.release("Alice", null);
+
+        assertNull(index.reserve("Alice", "second@example.com"));
+    }
+
+    @Test
+    void releasedValuesCanBeReserved() {
+        assertNull(index.reserve("Alice", "alice@example.com"));
+        index.release("Alice", "alice@example.com");
+
+        assertNull(index.reserve("Alice", "alice@example.com"));
+    }
+
+    @Test
+    void freeValuesAreClaimedWithoutTheDatabase() {
+        UserRepository unused = mock(UserRepository.class);
+        UserIdentityIndex fresh = new UserIdentityIndex(unused, null);
+
+        assertNull(fresh.reserve("Alice", "alice@example.com"));
+        assertNull(fresh.reserveChange("Alice", "alice@example.com", "Bob", "bob@example.com"));
+        verifyNoInteractions(unused);
+    }
+
+    @Test
+    void staleEntriesDontRejectRegistrations() {
+        // Deleted or renamed on another instance, which this index never hears about
+        index.add("Alice", "alice@example.com");
+        when(userRepository.existsByUsername("Alice")).thenReturn(false);
+        when(userRepository.existsByEmail("alice@example.com")).thenReturn(false);
+
+        assertNull(index.reserve("Alice", "alice@example.com"));
+        assertNull(index.reserveChange("Bob", "bob@example.com", "Alice", "alice@example.com"));
+    }
+}
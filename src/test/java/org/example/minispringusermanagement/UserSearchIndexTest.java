@@ -0,0 +1,157 @@
+package org.example.minispringusermanagement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSearchIndexTest {
+
+    private final UserSearchIndex index = new UserSearchIndex(null, null, new SimpleMeterRegistry());
+
+    @Test
+    void substringMatchNeedsAdjacentTrigrams() {
+        // "bob" and "obo" both occur in "bobxobo", but not as one run "bobo"
+        put(1, "bobxobo", "one@example.com");
+        put(2, "xbobox", "two@example.com");
+
+        assertEquals(List.of(2L), ids(index.search("bobo", 0, 10)));
+    }
+
+    @Test
+    void ranksExactThenPrefixesThenSubstrings() {
+        put(1, "xalice", "xalice@example.com");           // username substring
+        put(2, "bob", "alice.b@example.com");             // email prefix
+        put(3, "alicesmith", "smith@example.com");        // username prefix, longer
+        put(4, "alice1", "a1@example.com");               // username prefix, shorter
+        put(5, "carol", "carol.alice@example.com");       // email substring
+        put(6, "alice", "alice@example.com");             // exact
+
+        assertEquals(List.of(6L, 4L, 3L, 2L, 1L, 5L), ids(index.search("Alice", 0, 10)));
+    }
+
+    @Test
+    void twoCharacterQueriesMatchPrefixesOnly() {
+        put(1, "abc", "x@example.com");
+        put(2, "xabc", "y@example.com");
+
+        assertEquals(List.of(1L), ids(index.search("ab", 0, 10)));
+    }
+
+    @Test
+    void pagesThroughMatches() {
+        for (int i = 1; i <= 5; i++) {
+            put(i, "user" + i, "user" + i + "@example.com");
+        }
+
+        UserSearchPage first = index.search("user", 0, 2);
+        UserSearchPage last = index.search("user", 4, 2);
+
+        assertEquals(5, first.getTotal());
+        assertEquals(2, first.getUsers().size());
+        assertEquals(2, first.getNextOffset());
+        assertEquals(1, last.getUsers().size());
+        assertNull(last.getNextOffset());
+    }
+
+    @Test
+    void removedUsersAreNotFound() {
+        put(1, "alice", "alice@example.com");
+        put(2, "alicia", "alicia@example.com");
+
+        index.remove(1);
+
+        assertEquals(List.of(2L), ids(index.search("ali", 0, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void updateReindexesChangedValues() {
+        put(1, "alice", "alice@example.com");
+
+        put(1, "bob", "bob@example.com");
+
+        assertEquals(List.of(), ids(index.search("alice", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("bob", 0, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void roleChangeKeepsTheUserSearchable() {
+        put(1, "alice", "alice@example.com");
+
+        index.put(new UserSummary(1L, "alice", "alice@example.com", Role.ADMIN));
+
+        assertEquals(Role.ADMIN, index.search("alice", 0, 10).getUsers().get(0).getRole());
+    }
+
+    @Test
+    void matchesBruteForceUnderChurn() {
+        // Random puts, updates and removes exercise document reuse and map deletion; every query must agree
+        // with a plain substring scan over the live users
+        Random random = new Random(42);
+        Map<Long, UserSummary> live = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                live.remove(id);
+            } else {
+                String name = randomName(random);
+                UserSummary user = new UserSummary(id, name, name + "@" + randomName(random) + ".com", Role.USER);
+                index.put(user);
+                live.put(id, user);
+            }
+        }
+        assertEquals(live.size(), index.size());
+
+        for (int i = 0; i < 200; i++) {
+            String q = randomName(random).substring(0, 3);
+            Set<Long> expected = live.values().stream()
+                    .filter(user -> user.getUsername().toLowerCase(Locale.ROOT).contains(q)
+                            || user.getEmail().toLowerCase(Locale.ROOT).contains(q))
+                    .map(UserSummary::getId)
+                    .collect(Collectors.toSet());
+            Set<Long> found = Set.copyOf(ids(index.search(q, 0, live.size() + 1)));
+            assertEquals(expected, found, q);
+        }
+    }
+
+    @Test
+    void queryWithUnknownTrigramFindsNothing() {
+        put(1, "alice", "alice@example.com");
+
+        UserSearchPage page = index.search("zzz", 0, 10);
+
+        assertTrue(page.getUsers().isEmpty());
+        assertEquals(0, page.getTotal());
+    }
+
+    private void put(long id, String username, String email) {
+        index.put(new UserSummary(id, username, email, Role.USER));
+    }
+
+    private static List<Long> ids(UserSearchPage page) {
+        return page.getUsers().stream().map(UserSummary::getId).toList();
+    }
+
+    // Small alphabet, so random queries share many trigrams with the indexed values
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 3 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            name.append((char) ('a' + random.nextInt(4)));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.minispringusermanagement;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+// A PUT only logs the user out everywhere when it replaces the password or the username
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sessions",
+        "rate-limit.login.enabled=false",
+        "user-change-log.enabled=false"})
+@AutoConfigureMockMvc
+class UserSessionRevocationTest {
+
+    private static final String PASSWORD = "Str0ng!Passw0rd";
+
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void putWithoutPasswordKeepsSessionsAndPassword() throws Exception {
+        String username = registerUser();
+        long id = userRepository.findByUsername(username).orElseThrow().getId();
+        String token = login(username, PASSWORD);
+
+        assertEquals(200, putUser(token, id, username, null).getResponse().getStatus());
+
+        assertEquals(200, getUser(token, id).getResponse().getStatus());
+        login(username, PASSWORD);
+    }
+
+    @Test
+    void putWithNewPasswordRevokesSessions() throws Exception {
+        String username = registerUser();
+        long id = userRepository.findByUsername(username).orElseThrow().getId();
+        String token = login(username, PASSWORD);
+        // Revocation compares issue times in milliseconds
+        Thread.sleep(5);
+
+        assertEquals(200, putUser(token, id, username, "An0ther!Passw0rd").getResponse().getStatus());
+
+        // A revoked token is treated as anonymous, which the security chain rejects with 403
+        assertEquals(403, getUser(token, id).getResponse().getStatus());
+        login(username, "An0ther!Passw0rd");
+    }
+
+    @Test
+    void registrationStillRequiresPassword() throws Exception {
+        String username = "session" + USERS.incrementAndGet();
+        MvcResult result = mockMvc.perform(post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\"}")).andReturn();
+
+        assertEquals(400, result.getResponse().getStatus());
+    }
+
+    private MvcResult putUser(String token, long id, String username, String password) throws Exception {
+        String body = "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.org\""
+                + (password == null ? "" : ",\"password\":\"" + password + "\"") + "}";
+        return mockMvc.perform(put("/users/" + id).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON).content(body)).andReturn();
+    }
+
+    private MvcResult getUser(String token, long id) throws Exception {
+        return mockMvc.perform(get("/users/" + id).header(HttpHeaders.AUTHORIZATION, "Bearer " + token)).andReturn();
+    }
+
+    private String login(String username, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/authenticate").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")).andReturn();
+        assertEquals(200, result.getResponse().getStatus(), result.getResponse().getContentAsString());
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("jwt").asText();
+    }
+
+    private String registerUser() throws Exception {
+        String username = "session" + USERS.incrementAndGet();
+        mockMvc.perform(post("/users/register").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + username + "\",\"email\":\"" + username
+                        + "@example.com\",\"password\":\"" + PASSWORD + "\"}"));
+        return username;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.minispringusermanagement.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BreachedPasswordFilterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void containsEveryCompiledPassword() throws IOException {
+        List<String> breached = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            breached.add("breached-" + i);
+        }
+        BreachedPasswordFilter filter = compile(breached, 0.001);
+
+        for (String password : breached) {
+            assertTrue(filter.mightContain(password), password);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() throws IOException {
+        List<String> breached = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            breached.add("breached-" + i);
+        }
+        BreachedPasswordFilter filter = compile(breached, 0.01);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("unseen-" + i)) {
+                falsePositives++;
+            }
+        }
+        // 1% target; allow for variance without making the test flaky
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void skipsEmptyLines() throws IOException {
+        BreachedPasswordFilter filter = compile(List.of("", "letmein", ""), 0.001);
+
+        assertTrue(filter.mightContain("letmein"));
+        assertFalse(filter.mightContain(""));
+    }
+
+    @Test
+    void writesHeaderAndBitArray() throws IOException {
+        Path bloom = compileFile(List.of("letmein", "qwerty"), 0.001);
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(bloom));
+
+        assertEquals(BreachedPasswordFilter.MAGIC, file.getInt(0));
+        long bitCount = file.getLong(8);
+        assertEquals(BreachedPasswordFilter.HEADER_BYTES + BreachedPasswordFilter.wordCount(bitCount) * Long.BYTES,
+                file.capacity());
+    }
+
+    @Test
+    void rejectsFileWithoutMagic() throws IOException {
+        Path file = Files.write(directory.resolve("not-a-filter.bloom"), new byte[64]);
+
+        assertThrows(IOException.class, () -> BreachedPasswordFilter.open(file));
+    }
+
+    @Test
+    void rejectsTruncatedBitArray() throws IOException {
+        Path bloom = compileFile(List.of("letmein", "qwerty"), 0.001);
+        byte[] bytes = Files.readAllBytes(bloom);
+        Path truncated = Files.write(directory.resolve("truncated.bloom"),
+                Arrays.copyOf(bytes, bytes.length - Long.BYTES));
+
+        assertThrows(IOException.class, () -> BreachedPasswordFilter.open(truncated));
+    }
+
+    private BreachedPasswordFilter compile(List<String> passwords, double falsePositiveRate) throws IOException {
+        return BreachedPasswordFilter.open(compileFile(passwords, falsePositiveRate));
+    }
+
+    private Path compileFile(List<String> passwords, double falsePositiveRate) throws IOException {
+        Path list = Files.write(directory.resolve("passwords.txt"), passwords);
+        Path bloom = directory.resolve("passwords.bloom");
+        BreachedPasswordFilterCompiler.compile(list, bloom, passwords.size(), falsePositiveRate);
+        return bloom;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.minispringusermanagement.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsBurstThenWaitsOneEmissionInterval() {
+        // One permit per second with a burst of 3: three immediate permits, then about a second to the next
+        RateLimiter<String> limiter = new RateLimiter<>(1, 3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a"), "permit " + i);
+        }
+        long wait = limiter.tryAcquire("a");
+        assertTrue(wait > 0 && wait <= SECOND, "wait " + wait);
+    }
+
+    @Test
+    void rejectedAttemptsDoNotExtendTheWait() {
+        RateLimiter<String> limiter = new RateLimiter<>(1.0 / 60, 1, 100);
+        limiter.tryAcquire("a");
+
+        long first = limiter.tryAcquire("a");
+        long second = limiter.tryAcquire("a");
+
+        assertTrue(second <= first, first + " then " + second);
+        assertTrue(first > 59 * SECOND && first <= 60 * SECOND, "wait " + first);
+    }
+
+    @Test
+    void keysAreIndependent() {
+        RateLimiter<String> limiter = new RateLimiter<>(1.0 / 60, 1, 100);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+        assertEquals(0, limiter.tryAcquire("b"));
+    }
+
+    @Test
+    void recoversAfterEmissionInterval() throws InterruptedException {
+        RateLimiter<String> limiter = new RateLimiter<>(100, 1, 100);
+        assertEquals(0, limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a") > 0);
+
+        Thread.sleep(20);
+
+        assertEquals(0, limiter.tryAcquire("a"));
+    }
+
+    @Test
+    void unknownKeysShareOverflowStripesOnceFull() {
+        RateLimiter<Integer> limiter = new RateLimiter<>(1.0 / 60, 1, 2);
+        assertEquals(0, limiter.tryAcquire(1));
+        assertEquals(0, limiter.tryAcquire(2));
+
+        // Keys whose hashes differ by a multiple of the stripe count land in the same overflow cell
+        assertEquals(0, limiter.tryAcquire(3));
+        assertTrue(limiter.tryAcquire(3 + 4096) > 0);
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    void evictsOnlyRecoveredKeys() throws InterruptedException {
+        RateLimiter<String> fast = new RateLimiter<>(100, 1, 100);
+        RateLimiter<String> slow = new RateLimiter<>(1.0 / 60, 1, 100);
+        fast.tryAcquire("a");
+        slow.tryAcquire("a");
+
+        Thread.sleep(20);
+        fast.evictIdle();
+        slow.evictIdle();
+
+        assertEquals(0, fast.size());
+        assertEquals(1, slow.size());
+    }
+
+    @Test
+    void rejectsNonPositiveRateOrBurst() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter<String>(0, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter<String>(1, 0, 100));
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.minispringusermanagement.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackAppendedRecordsInOrder() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, journal.append(record(i)));
+            }
+
+            assertEquals(records(0, 10), readAll(journal, 0));
+            assertEquals(10, journal.nextSequence());
+        }
+    }
+
+    @Test
+    void readStopsAtLimitAndReturnsTheNextSequence() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 10);
+
+            List<String> read = new ArrayList<>();
+            long next = journal.read(3, 4, (sequence, payload) -> read.add(decode(payload)));
+
+            assertEquals(records(3, 7), read);
+            assertEquals(7, next);
+            assertEquals(10, journal.read(10, 5, (sequence, payload) -> read.add(decode(payload))));
+        }
+    }
+
+    @Test
+    void rollsOverToNewSegmentsAndReadsAcrossThem() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, 256)) {
+            append(journal, 0, 100);
+
+            assertTrue(segmentFiles().size() > 1, "Expected several segments");
+            assertEquals(records(0, 100), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void sparseIndexFindsRecordsFromAnySequence() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 1000);
+
+            for (long from : new long[]{0, 1, 255, 256, 257, 511, 700, 999}) {
+                List<Long> sequences = new ArrayList<>();
+                journal.read(from, 3, (sequence, payload) -> sequences.add(sequence));
+                assertEquals(List.of(from, from + 1, from + 2).subList(0, (int) Math.min(3, 1000 - from)),
+                        sequences, "from " + from);
+            }
+        }
+        // The index is rebuilt from the segments after reopening
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            List<String> read = new ArrayList<>();
+            journal.read(700, 2, (sequence, payload) -> read.add(decode(payload)));
+            assertEquals(records(700, 702), read);
+        }
+    }
+
+    @Test
+    void reopenContinuesTheSequence() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 5);
+        }
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(5, journal.nextSequence());
+            assertEquals(5, journal.append(record(5)));
+
+            assertEquals(records(0, 6), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void recoversAfterCorruptedLastRecord() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 5);
+        }
+        // Flip the last payload byte of the last segment: record 4 fails its CRC
+        Path last = lastSegment();
+        byte[] bytes = Files.readAllBytes(last);
+        bytes[usedLength(bytes) - 1] ^= 0x5a;
+        Files.write(last, bytes);
+
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(4, journal.nextSequence());
+            assertEquals(4, journal.append(record(40)));
+
+            List<String> expected = records(0, 4);
+            expected.add("record-40");
+            assertEquals(expected, readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void recoversAfterTornLastRecord() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 5);
+        }
+        // Cut the last frame short, as a crash in the middle of writing it would
+        Path last = lastSegment();
+        int used = usedLength(Files.readAllBytes(last));
+        try (FileChannel file = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            file.truncate(used - 3);
+        }
+
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(4, journal.nextSequence());
+            append(journal, 4, 6);
+
+            assertEquals(records(0, 6), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void ignoresZeroFilledTailOfUnclosedSegment() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 3);
+        }
+        // A segment that was never closed keeps its mapped, zero-filled tail
+        Files.write(lastSegment(), new byte[SEGMENT_SIZE], StandardOpenOption.APPEND);
+
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(3, journal.nextSequence());
+            assertEquals(records(0, 3), readAll(journal, 0));
+        }
+    }
+
+    @Test
+    void closeKeepsTheMappedSizeAndReopenTrimsTheTail() throws IOException {
+        SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE);
+        append(journal, 0, 3);
+        journal.close();
+
+        Path segment = lastSegment();
+        assertEquals(SEGMENT_SIZE, Files.size(segment));
+        assertThrows(IOException.class, () -> journal.append(record(3)));
+
+        try (SegmentedJournal reopened = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(usedLength(Files.readAllBytes(segment)), Files.size(segment));
+            assertEquals(records(0, 3), readAll(reopened, 0));
+        }
+    }
+
+    @Test
+    void secondWriterIsRejected() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            append(journal, 0, 1);
+
+            IOException e = assertThrows(IOException.class, () -> SegmentedJournal.open(directory, SEGMENT_SIZE));
+            assertTrue(e.getMessage().contains("already in use"), e.getMessage());
+        }
+        // The lock is released on close
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, SEGMENT_SIZE)) {
+            assertEquals(1, journal.nextSequence());
+        }
+    }
+
+    @Test
+    void rejectsRecordsLargerThanASegment() throws IOException {
+        try (SegmentedJournal journal = SegmentedJournal.open(directory, 64)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(ByteBuffer.allocate(64)));
+        }
+    }
+
+    private static void append(SegmentedJournal journal, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            journal.append(record(i));
+        }
+    }
+
+    private static List<String> readAll(SegmentedJournal journal, long from) throws IOException {
+        List<String> read = new ArrayList<>();
+        journal.read(from, Integer.MAX_VALUE, (sequence, payload) -> read.add(decode(payload)));
+        return read;
+    }
+
+    private static ByteBuffer record(int i) {
+        return ByteBuffer.wrap(("record-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> records(int from, int to) {
+        List<String> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            records.add("record-" + i);
+        }
+        return records;
+    }
+
+    private static String decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Records end with a non-zero payload byte, followed by the zero-filled tail of the mapping
+    private static int usedLength(byte[] segment) {
+        int length = segment.length;
+        while (length > 0 && segment[length - 1] == 0) {
+            length--;
+        }
+        return length;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).sorted().toList();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segmentFiles();
+        return segments.get(segments.size() - 1);
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.minispringusermanagement.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.example.minispringusermanagement.Role;
+import org.example.minispringusermanagement.UserPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenDenylistTest {
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    private final TokenDenylist denylist = new TokenDenylist(Duration.ofMinutes(1), TTL);
+
+    @Test
+    void revokesSingleTokenById() {
+        Claims revoked = claims(1L, System.currentTimeMillis());
+        Claims other = claims(1L, System.currentTimeMillis());
+
+        denylist.revoke(revoked);
+
+        assertTrue(denylist.isRevoked(revoked));
+        assertFalse(denylist.isRevoked(other));
+    }
+
+    @Test
+    void userRevocationCoversTokensIssuedEarlierInTheSameSecond() throws InterruptedException {
+        // Land just after a second boundary, so the token and the revocation share the same 'iat' second
+        while (System.currentTimeMillis() % 1000 > 900) {
+            Thread.sleep(10);
+        }
+        Claims token = claims(1L, System.currentTimeMillis());
+        Thread.sleep(5);
+
+        denylist.revokeUser(1L);
+
+        assertTrue(denylist.isRevoked(token));
+    }
+
+    @Test
+    void userRevocationKeepsTokensIssuedAfterwards() throws InterruptedException {
+        denylist.revokeUser(1L);
+        Thread.sleep(5);
+
+        assertFalse(denylist.isRevoked(claims(1L, System.currentTimeMillis())));
+    }
+
+    @Test
+    void userRevocationOnlyAffectsThatUser() {
+        Claims token = claims(2L, System.currentTimeMillis() - 1000);
+
+        denylist.revokeUser(1L);
+
+        assertFalse(denylist.isRevoked(token));
+    }
+
+    @Test
+    void rejectsTokensWithoutUserId() {
+        Claims claims = claims(1L, System.currentTimeMillis());
+        claims.remove(JwtUtil.USER_ID_CLAIM);
+
+        assertTrue(denylist.isRevoked(claims));
+    }
+
+    @Test
+    void tokensWithoutMillisecondClaimAreCheckedBySecond() {
+        long issuedAt = System.currentTimeMillis() / 1000 * 1000;
+        Claims claims = claims(1L, issuedAt);
+        claims.remove(JwtUtil.ISSUED_AT_MILLIS_CLAIM);
+
+        denylist.revokeUser(1L);
+
+        assertTrue(denylist.isRevoked(claims));
+    }
+
+    @Test
+    void tokensFromJwtUtilCarryMillisecondIssueTime() throws InterruptedException {
+        JwtUtil jwtUtil = new JwtUtil(100, TTL);
+        UserPrincipal principal = new UserPrincipal(1L, "admin", "unused", Role.ADMIN);
+        Claims before = jwtUtil.extractAllClaims(jwtUtil.generateToken(principal));
+        Thread.sleep(5);
+
+        denylist.revokeUser(1L);
+        Thread.sleep(5);
+        Claims after = jwtUtil.extractAllClaims(jwtUtil.generateToken(principal));
+
+        assertTrue(denylist.isRevoked(before));
+        assertFalse(denylist.isRevoked(after));
+    }
+
+    @Test
+    void sweepKeepsUnexpiredRevocations() {
+        Claims token = claims(1L, System.currentTimeMillis());
+        denylist.revoke(token);
+        denylist.revokeUser(2L);
+
+        denylist.sweep();
+
+        assertTrue(denylist.isRevoked(token));
+        assertTrue(denylist.isRevoked(claims(2L, System.currentTimeMillis() - 1000)));
+    }
+
+    private static Claims claims(long userId, long issuedAtMillis) {
+        Claims claims = Jwts.claims();
+        claims.setId(UUID.randomUUID().toString());
+        claims.setSubject("user" + userId);
+        claims.setIssuedAt(new Date(issuedAtMillis));
+        claims.setExpiration(new Date(issuedAtMillis + TTL.toMillis()));
+        claims.put(JwtUtil.USER_ID_CLAIM, userId);
+        claims.put(JwtUtil.ISSUED_AT_MILLIS_CLAIM, issuedAtMillis);
+        return claims;
+    }
+}